@@ -0,0 +1,22 @@
+package com.datadoghq.workshops.samplejavaapp.service;
+
+import com.datadoghq.workshops.samplejavaapp.exception.InvalidDomainException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of normalizing and validating the domain name that /test-domain passes to ping.
+ */
+@State(Scope.Benchmark)
+public class DomainValidationBenchmark {
+
+  @Param({"example.com", "  WWW.Example.COM  ", "bücher.example"})
+  public String domain;
+
+  @Benchmark
+  public String normalizeAndValidate() throws InvalidDomainException {
+    return DomainTestService.normalizeAndValidateDomainName(domain);
+  }
+}
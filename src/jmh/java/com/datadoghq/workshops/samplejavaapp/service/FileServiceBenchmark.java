@@ -0,0 +1,51 @@
+package com.datadoghq.workshops.samplejavaapp.service;
+
+import com.datadoghq.workshops.samplejavaapp.exception.FileForbiddenFileException;
+import com.datadoghq.workshops.samplejavaapp.exception.FileReadException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Cost of reading a file for /view-file, by file size. The files are written under the allowed prefix once per
+ * fork and stay in the page cache, so this measures decoding and copying rather than the disk.
+ */
+@State(Scope.Benchmark)
+public class FileServiceBenchmark {
+
+  @Param({"1024", "65536", "1048576"})
+  public int size;
+
+  private final FileService service = new FileService(ServiceMetrics.noop());
+  private Path file;
+
+  @Setup
+  public void setUp() throws IOException {
+    Path dir = Files.createDirectories(Path.of(FileService.ALLOWED_PREFIX));
+    file = dir.resolve("jmh-" + size + ".txt");
+    StringBuilder sb = new StringBuilder(size);
+    while (sb.length() < size) {
+      sb.append("The quick brown fox jumps over the lazy dog ").append(sb.length()).append('\n');
+    }
+    sb.setLength(size);
+    Files.writeString(file, sb, StandardCharsets.UTF_8);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Benchmark
+  public String readFile() throws FileForbiddenFileException, FileReadException {
+    return service.readFile(file.toString());
+  }
+}
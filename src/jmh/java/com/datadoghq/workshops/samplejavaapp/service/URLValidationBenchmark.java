@@ -0,0 +1,56 @@
+package com.datadoghq.workshops.samplejavaapp.service;
+
+import com.datadoghq.workshops.samplejavaapp.config.URLValidationProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cost of the SSRF checks on an allowed URL, with DNS replaced by a fixed answer so only the policy work is
+ * measured. The allowed domain is the last whitelist entry and the address matches none of the blocked ranges, so
+ * both lists are scanned in full.
+ */
+@State(Scope.Benchmark)
+public class URLValidationBenchmark {
+
+  @Param({"2", "1000"})
+  public int whitelistDomains;
+
+  @Param({"4", "1000"})
+  public int blockedRanges;
+
+  private URLValidationService service;
+
+  @Setup
+  public void setUp() throws Exception {
+    List<String> domains = new ArrayList<>(whitelistDomains);
+    for (int i = 1; i < whitelistDomains; i++) {
+      domains.add("allowed-" + i + ".example.net");
+    }
+    domains.add("example.com");
+
+    // Distinct /24s inside 100.64.0.0/10, none of which holds the resolved address.
+    List<String> ranges = new ArrayList<>(blockedRanges);
+    for (int i = 0; i < blockedRanges; i++) {
+      ranges.add("100." + (64 + (i >> 8) % 64) + "." + (i & 0xFF) + ".0/24");
+    }
+
+    URLValidationProperties props = new URLValidationProperties();
+    props.getWhitelist().setDomains(domains);
+    props.getBlacklist().setIpRanges(ranges);
+
+    InetAddress[] addresses = {InetAddress.getByName("93.184.216.34"), InetAddress.getByName("2606:2800:220:1::1")};
+    service = new URLValidationService(props, host -> addresses.clone());
+  }
+
+  @Benchmark
+  public boolean validateURL() {
+    return service.validateURL("https://api.example.com/status?verbose=true");
+  }
+}
@@ -0,0 +1,81 @@
+package com.datadoghq.workshops.samplejavaapp.loadtest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Stored results to compare a run against. A metric regresses when a latency percentile is more than tolerance
+ * above its baseline or throughput is more than tolerance below it. Once a scenario has a baseline, a metric missing
+ * from it counts as a regression too, so a hand-edited or partly recorded file cannot pass a run unchecked.
+ */
+final class Baseline {
+
+  private final Path file;
+  private final Properties values = new Properties();
+
+  Baseline(Path file) throws IOException {
+    this.file = file;
+    if (Files.exists(file)) {
+      try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+        values.load(in);
+      }
+    }
+  }
+
+  /**
+   * Whether anything was recorded for the scenario.
+   */
+  boolean covers(String scenario) {
+    return values.stringPropertyNames().stream().anyMatch(key -> key.startsWith(scenario + "."));
+  }
+
+  List<String> regressions(LoadResult result, double tolerance) {
+    List<String> regressions = new ArrayList<>();
+    checkAtMost(regressions, result.scenario() + ".p50.ms", result.p50(), tolerance);
+    checkAtMost(regressions, result.scenario() + ".p99.ms", result.p99(), tolerance);
+    checkAtMost(regressions, result.scenario() + ".p999.ms", result.p999(), tolerance);
+    String key = result.scenario() + ".throughput";
+    Double baseline = value(key);
+    if (baseline == null) {
+      regressions.add(key + " has no baseline");
+    } else if (result.throughput() < baseline * (1 - tolerance)) {
+      regressions.add(String.format(Locale.ROOT, "%s dropped to %.3f from %.3f", key, result.throughput(), baseline));
+    }
+    return regressions;
+  }
+
+  /**
+   * Replaces the stored values of every scenario in results and writes the file back.
+   */
+  void update(List<LoadResult> results) throws IOException {
+    for (LoadResult result : results) {
+      result.storeIn(values);
+    }
+    Files.createDirectories(file.toAbsolutePath().getParent());
+    try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      values.store(out, "Load test baseline, recorded with ./gradlew loadTest -Ploadtest.update-baseline=true");
+    }
+  }
+
+  private void checkAtMost(List<String> regressions, String key, double actual, double tolerance) {
+    Double baseline = value(key);
+    if (baseline == null) {
+      regressions.add(key + " has no baseline");
+    } else if (actual > baseline * (1 + tolerance)) {
+      regressions.add(String.format(Locale.ROOT, "%s rose to %.3f from %.3f", key, actual, baseline));
+    }
+  }
+
+  private Double value(String key) {
+    String value = values.getProperty(key);
+    return value == null ? null : Double.valueOf(value);
+  }
+}
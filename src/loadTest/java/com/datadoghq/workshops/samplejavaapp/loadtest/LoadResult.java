@@ -0,0 +1,59 @@
+package com.datadoghq.workshops.samplejavaapp.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of one scenario. Latencies are in milliseconds and throughput counts successful responses per second.
+ */
+record LoadResult(String scenario, double targetRate, double throughput, double p50, double p99, double p999,
+                  double max, long successes, Map<Integer, Long> statuses) {
+
+  static LoadResult of(String scenario, double targetRate, long elapsedNanos, Histogram latencies,
+                       Map<Integer, Long> statuses) {
+    long successes = statuses.entrySet().stream()
+        .filter(e -> e.getKey() >= 200 && e.getKey() < 300)
+        .mapToLong(Map.Entry::getValue)
+        .sum();
+    double seconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+    return new LoadResult(scenario, targetRate, successes / seconds,
+        millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(99)),
+        millis(latencies.getValueAtPercentile(99.9)), millis(latencies.getMaxValue()), successes, statuses);
+  }
+
+  long requests() {
+    return statuses.values().stream().mapToLong(Long::longValue).sum();
+  }
+
+  double errorRate() {
+    long requests = requests();
+    return requests == 0 ? 0 : (requests - successes) / (double) requests;
+  }
+
+  /**
+   * The metrics a baseline keeps, keyed by scenario.
+   */
+  void storeIn(Properties properties) {
+    properties.setProperty(scenario + ".throughput", format(throughput));
+    properties.setProperty(scenario + ".p50.ms", format(p50));
+    properties.setProperty(scenario + ".p99.ms", format(p99));
+    properties.setProperty(scenario + ".p999.ms", format(p999));
+  }
+
+  String summary() {
+    return String.format(Locale.ROOT, "%-12s target=%.1f/s throughput=%.1f/s p50=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms"
+        + " statuses=%s", scenario, targetRate, throughput, p50, p99, p999, max, statuses);
+  }
+
+  private static double millis(long micros) {
+    return micros / 1000.0;
+  }
+
+  private static String format(double value) {
+    return String.format(Locale.ROOT, "%.3f", value);
+  }
+}
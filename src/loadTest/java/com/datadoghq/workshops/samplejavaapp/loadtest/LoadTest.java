@@ -0,0 +1,177 @@
+package com.datadoghq.workshops.samplejavaapp.loadtest;
+
+import com.datadoghq.workshops.samplejavaapp.config.OutboundHttpProperties;
+import com.datadoghq.workshops.samplejavaapp.outbound.VettedAddresses;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Finds out how much /test-domain, /test-website and /view-file traffic one node takes, against local stand-ins for
+ * everything outside the JVM: a {@link StubUpstream} for websites, the fake ping in src/loadTest/bin (put first on
+ * the PATH by the loadTest task) and a generated file corpus under /tmp/files.
+ *
+ * Every scenario runs a warmup and then a measured open-model run, prints its percentiles and fails if the error
+ * rate is too high or a metric regressed against src/loadTest/resources/baseline.properties. A scenario with nothing
+ * recorded there is reported as skipped rather than passed, since there is nothing to compare it with. Rates,
+ * durations and thresholds come from loadtest.* system properties, which the loadTest task forwards from -Ploadtest.*
+ * flags.
+ * Rate limiting is off since all load comes from one address; the concurrency limit stays on as in production.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = {
+    "rate-limit.enabled=false",
+    "outbound.http.snapshot.enabled=false",
+    "url.validation.whitelist.domains=" + LoadTest.UPSTREAM_ADDRESS
+})
+@Import(LoadTest.UpstreamConfig.class)
+class LoadTest {
+
+  // TEST-NET-3: public as far as URL validation is concerned, routed to the stub by LoopbackVettedAddresses.
+  static final String UPSTREAM_ADDRESS = "203.0.113.10";
+
+  private static final Path CORPUS = Path.of("/tmp/files/loadtest");
+  private static final int CORPUS_FILES = 100;
+
+  private static final Duration DURATION = Duration.ofSeconds(Long.getLong("loadtest.duration", 30));
+  private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("loadtest.warmup", 10));
+  private static final double TOLERANCE = Double.parseDouble(System.getProperty("loadtest.tolerance", "0.2"));
+  private static final double MAX_ERROR_RATE =
+      Double.parseDouble(System.getProperty("loadtest.max-error-rate", "0.01"));
+  private static final boolean UPDATE_BASELINE = Boolean.getBoolean("loadtest.update-baseline");
+  private static final Path BASELINE =
+      Path.of(System.getProperty("loadtest.baseline", "src/loadTest/resources/baseline.properties"));
+  private static final Path REPORT_DIR = Path.of(System.getProperty("loadtest.report-dir", "build/reports/loadtest"));
+
+  private static final StubUpstream upstream = startUpstream(Integer.getInteger("loadtest.upstream.body-size", 16384),
+      Duration.ofMillis(Long.getLong("loadtest.upstream.delay-ms", 20)));
+  private static final List<LoadResult> results = Collections.synchronizedList(new ArrayList<>());
+
+  @LocalServerPort
+  private int port;
+
+  private final OpenLoadGenerator generator = new OpenLoadGenerator(HttpClient.newBuilder()
+      .executor(Executors.newVirtualThreadPerTaskExecutor())
+      .connectTimeout(Duration.ofSeconds(5))
+      .build());
+
+  @DynamicPropertySource
+  static void upstreamPort(DynamicPropertyRegistry registry) {
+    registry.add("url.validation.allowed-ports", () -> "80,443," + upstream.port());
+  }
+
+  @BeforeAll
+  static void writeCorpus() throws IOException {
+    Files.createDirectories(CORPUS);
+    for (int i = 0; i < CORPUS_FILES; i++) {
+      // 1 KiB to 64 KiB, spread evenly.
+      int size = 1024 << (i % 7);
+      Files.writeString(CORPUS.resolve("file-" + i + ".txt"), "line of text\n".repeat(size / 13),
+          StandardCharsets.UTF_8);
+    }
+  }
+
+  @AfterAll
+  static void report() throws IOException {
+    upstream.close();
+    Files.createDirectories(REPORT_DIR);
+    List<String> lines = new ArrayList<>();
+    for (LoadResult result : results) {
+      lines.add(result.summary());
+    }
+    Files.write(REPORT_DIR.resolve("summary.txt"), lines, StandardCharsets.UTF_8);
+    if (UPDATE_BASELINE) {
+      new Baseline(BASELINE).update(results);
+    }
+  }
+
+  @Test
+  void testDomain() throws Exception {
+    run("test-domain", 20, () -> post("/test-domain", "{\"domainName\":\"loadtest.example.com\"}"));
+  }
+
+  @Test
+  void testWebsite() throws Exception {
+    String url = "http://" + UPSTREAM_ADDRESS + ":" + upstream.port() + "/page";
+    run("test-website", 100, () -> post("/test-website", "{\"url\":\"" + url + "\"}"));
+  }
+
+  @Test
+  void viewFile() throws Exception {
+    run("view-file", 200, () -> {
+      int file = ThreadLocalRandom.current().nextInt(CORPUS_FILES);
+      return post("/view-file", "{\"path\":\"" + CORPUS.resolve("file-" + file + ".txt") + "\"}");
+    });
+  }
+
+  private void run(String scenario, double defaultRate, Supplier<HttpRequest> requests) throws Exception {
+    double rate = Double.parseDouble(System.getProperty("loadtest." + scenario + ".rate", String.valueOf(defaultRate)));
+    generator.run(scenario, rate, WARMUP, requests);
+    LoadResult result = generator.run(scenario, rate, DURATION, requests);
+    results.add(result);
+    System.out.println(result.summary());
+
+    assertTrue(result.errorRate() <= MAX_ERROR_RATE,
+        scenario + " error rate " + result.errorRate() + " is above " + MAX_ERROR_RATE + ": " + result.statuses());
+    if (!UPDATE_BASELINE) {
+      Baseline baseline = new Baseline(BASELINE);
+      assumeTrue(baseline.covers(scenario), scenario + " has no baseline in " + BASELINE
+          + "; record one with ./gradlew loadTest -Ploadtest.update-baseline=true");
+      List<String> regressions = baseline.regressions(result, TOLERANCE);
+      assertTrue(regressions.isEmpty(), String.join("; ", regressions));
+    }
+  }
+
+  private HttpRequest post(String path, String json) {
+    return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+        .header("Content-Type", "application/json")
+        .timeout(Duration.ofSeconds(30))
+        .POST(HttpRequest.BodyPublishers.ofString(json))
+        .build();
+  }
+
+  private static StubUpstream startUpstream(int bodySize, Duration delay) {
+    try {
+      return new StubUpstream(bodySize, delay);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @TestConfiguration
+  static class UpstreamConfig {
+    @Bean
+    @Primary
+    VettedAddresses loopbackVettedAddresses(OutboundHttpProperties props) {
+      return new LoopbackVettedAddresses(props, UPSTREAM_ADDRESS);
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package com.datadoghq.workshops.samplejavaapp.loadtest;
+
+import com.datadoghq.workshops.samplejavaapp.config.OutboundHttpProperties;
+import com.datadoghq.workshops.samplejavaapp.outbound.VettedAddresses;
+
+import java.net.InetAddress;
+import java.util.List;
+
+/**
+ * Sends connections for one public address to loopback, the way a hosts file entry would. URL validation still runs
+ * in full against the public address, which it would reject if it were loopback, while the bytes come from the
+ * local {@link StubUpstream}.
+ */
+final class LoopbackVettedAddresses extends VettedAddresses {
+
+  private final String host;
+
+  LoopbackVettedAddresses(OutboundHttpProperties props, String host) {
+    super(props);
+    this.host = host;
+  }
+
+  @Override
+  public List<InetAddress> candidates(String host) {
+    if (this.host.equals(host)) {
+      return List.of(InetAddress.getLoopbackAddress());
+    }
+    return super.candidates(host);
+  }
+}
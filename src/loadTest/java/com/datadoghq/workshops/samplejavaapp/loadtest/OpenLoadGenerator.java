@@ -0,0 +1,83 @@
+package com.datadoghq.workshops.samplejavaapp.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Open-model load: requests start on a fixed schedule whether or not earlier ones have finished, the way independent
+ * users arrive. Each latency is measured from the time the request was due to start, not from when it was actually
+ * sent, so a stalled server or a late generator shows up in the percentiles instead of quietly lowering the rate
+ * (coordinated omission).
+ */
+final class OpenLoadGenerator {
+
+  private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+  private final HttpClient client;
+
+  OpenLoadGenerator(HttpClient client) {
+    this.client = client;
+  }
+
+  /**
+   * Sends requests at ratePerSecond for the given duration and waits up to a minute for the stragglers. Responses
+   * with a 2xx status count as successes; anything else, transport errors included, is recorded by status with 0
+   * standing for no response.
+   */
+  LoadResult run(String scenario, double ratePerSecond, Duration duration, Supplier<HttpRequest> requests)
+      throws InterruptedException {
+    Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+    Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+    long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+    long count = (long) (duration.toNanos() / intervalNanos);
+
+    long start = System.nanoTime();
+    try (ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (long i = 0; i < count; i++) {
+        long due = start + i * intervalNanos;
+        long wait = due - System.nanoTime();
+        if (wait > 0) {
+          TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        HttpRequest request = requests.get();
+        senders.execute(() -> {
+          int status = send(request);
+          long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due);
+          latencies.recordValue(Math.min(micros, MAX_LATENCY_MICROS));
+          statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        });
+      }
+      senders.shutdown();
+      senders.awaitTermination(1, TimeUnit.MINUTES);
+    }
+    long elapsed = System.nanoTime() - start;
+
+    Map<Integer, Long> byStatus = new TreeMap<>();
+    statuses.forEach((status, n) -> byStatus.put(status, n.sum()));
+    return LoadResult.of(scenario, ratePerSecond, elapsed, latencies, byStatus);
+  }
+
+  private int send(HttpRequest request) {
+    try {
+      return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return 0;
+    } catch (Exception e) {
+      return 0;
+    }
+  }
+}
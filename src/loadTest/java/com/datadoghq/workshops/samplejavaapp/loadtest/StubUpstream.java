@@ -0,0 +1,50 @@
+package com.datadoghq.workshops.samplejavaapp.loadtest;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+
+/**
+ * Local HTTP server standing in for the websites that /test-website fetches. Every response carries the same body
+ * after a fixed delay and is marked no-store, so the outbound response cache never answers in its place.
+ */
+final class StubUpstream implements AutoCloseable {
+
+  private final HttpServer server;
+
+  StubUpstream(int bodySize, Duration delay) throws IOException {
+    byte[] body = new byte[bodySize];
+    Arrays.fill(body, (byte) 'x');
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+    server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    server.createContext("/", exchange -> {
+      try (exchange) {
+        Thread.sleep(delay);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain");
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(body);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    server.start();
+  }
+
+  int port() {
+    return server.getAddress().getPort();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+}
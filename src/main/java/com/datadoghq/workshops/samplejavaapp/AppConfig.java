@@ -1,35 +1,113 @@
 package com.datadoghq.workshops.samplejavaapp;
 
+import com.datadoghq.workshops.samplejavaapp.config.OutboundHttpProperties;
+import com.datadoghq.workshops.samplejavaapp.exception.InvalidURLException;
+import com.datadoghq.workshops.samplejavaapp.outbound.AbortOnEarlyCloseRequestFactory;
+import com.datadoghq.workshops.samplejavaapp.outbound.CachingRequestInterceptor;
+import com.datadoghq.workshops.samplejavaapp.outbound.HostCircuitBreakers;
+import com.datadoghq.workshops.samplejavaapp.outbound.OutboundHttpClientFactory;
+import com.datadoghq.workshops.samplejavaapp.service.URLValidationService;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.ClientHttpRequestFactory;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResponseErrorHandler;
 import org.springframework.web.client.RestTemplate;
 
-import java.io.IOException;
-import java.net.HttpURLConnection;
-import java.time.Duration;
+import java.net.URI;
+import java.util.concurrent.Executors;
 
 @Configuration
 public class AppConfig
 {
     @Bean
-    public RestTemplate restTemplate(RestTemplateBuilder restTemplateBuilder)
+    public PoolingHttpClientConnectionManager outboundConnectionManager(OutboundHttpClientFactory factory)
+    {
+        return factory.connectionManager();
+    }
+
+    @Bean
+    public CloseableHttpClient outboundHttpClient(OutboundHttpClientFactory factory,
+                                                  PoolingHttpClientConnectionManager outboundConnectionManager)
     {
         // Do not follow redirects automatically; SSRF defenses should not be bypassable via redirects.
-        ClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory() {
-            @Override
-            protected void prepareConnection(HttpURLConnection connection, String httpMethod) throws IOException {
-                super.prepareConnection(connection, httpMethod);
-                connection.setInstanceFollowRedirects(false);
-            }
-        };
+        return factory.httpClient(outboundConnectionManager);
+    }
+
+    @Bean
+    public ClientHttpRequestFactory outboundRequestFactory(CloseableHttpClient outboundHttpClient)
+    {
+        // Connect and read timeouts live on the pooled client (see OutboundHttpProperties).
+        return new AbortOnEarlyCloseRequestFactory(outboundHttpClient);
+    }
+
+    @Bean
+    public CachingRequestInterceptor responseCache(ClientHttpRequestFactory outboundRequestFactory,
+                                                   OutboundHttpProperties props,
+                                                   URLValidationService urlValidationService,
+                                                   HostCircuitBreakers circuitBreakers)
+    {
+        // A bean even when caching is off, so the warm-state snapshot has one cache to save and restore.
+        OutboundHttpProperties.Cache cache = props.getCache();
+        // Background refreshes go through URL validation and the breakers like any website test.
+        CachingRequestInterceptor.Revalidation revalidation = new CachingRequestInterceptor.Revalidation(
+                uri -> passesValidation(urlValidationService, uri),
+                circuitBreakers,
+                props.getConnectTimeout().plus(props.getReadTimeout()));
+        return new CachingRequestInterceptor(
+                outboundRequestFactory,
+                cache.getMaxSize().toBytes(),
+                (int) cache.getMaxEntrySize().toBytes(),
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-cache-revalidate-", 0).factory()),
+                revalidation);
+    }
+
+    @Bean
+    public RestTemplate restTemplate(RestTemplateBuilder restTemplateBuilder,
+                                     ClientHttpRequestFactory outboundRequestFactory,
+                                     CachingRequestInterceptor responseCache, OutboundHttpProperties props)
+    {
+        if (props.getCache().isEnabled())
+        {
+            restTemplateBuilder = restTemplateBuilder.additionalInterceptors(responseCache);
+        }
 
         return restTemplateBuilder
-                .requestFactory(() -> requestFactory)
-                .setConnectTimeout(Duration.ofSeconds(5))
-                .setReadTimeout(Duration.ofSeconds(5))
+                .requestFactory(() -> outboundRequestFactory)
+                .errorHandler(new StatusPassthroughErrorHandler())
                 .build();
     }
+
+    private static boolean passesValidation(URLValidationService urlValidationService, URI uri)
+    {
+        try
+        {
+            return urlValidationService.validateURL(uri.toString());
+        }
+        catch (InvalidURLException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Leaves 4xx/5xx responses to the caller. The default handler buffers the whole error body into the
+     * exception, which defeats the size cap on website tests.
+     */
+    static class StatusPassthroughErrorHandler implements ResponseErrorHandler
+    {
+        @Override
+        public boolean hasError(ClientHttpResponse response)
+        {
+            return false;
+        }
+
+        @Override
+        public void handleError(ClientHttpResponse response)
+        {
+        }
+    }
 }
@@ -0,0 +1,95 @@
+package com.datadoghq.workshops.samplejavaapp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+  private boolean enabled = true;
+
+  /**
+   * Endpoints with an adaptive in-flight limit, by path without the leading slash. Each gets its own limit.
+   */
+  private List<String> endpoints = new ArrayList<>();
+
+  /**
+   * In-flight requests allowed per endpoint before any latency has been measured.
+   */
+  private int initialLimit = 20;
+
+  private int minLimit = 4;
+
+  private int maxLimit = 200;
+
+  /**
+   * How much slower than the long-term average recent requests may get before the limit starts shrinking;
+   * 1.5 tolerates 50% more latency.
+   */
+  private double tolerance = 1.5;
+
+  /**
+   * Weight of each new limit estimate, between 0 and 1. Lower values adapt more slowly but jitter less.
+   */
+  private double smoothing = 0.2;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public List<String> getEndpoints() {
+    return endpoints;
+  }
+
+  public void setEndpoints(List<String> endpoints) {
+    this.endpoints = endpoints;
+  }
+
+  public int getInitialLimit() {
+    return initialLimit;
+  }
+
+  public void setInitialLimit(int initialLimit) {
+    this.initialLimit = initialLimit;
+  }
+
+  public int getMinLimit() {
+    return minLimit;
+  }
+
+  public void setMinLimit(int minLimit) {
+    this.minLimit = minLimit;
+  }
+
+  public int getMaxLimit() {
+    return maxLimit;
+  }
+
+  public void setMaxLimit(int maxLimit) {
+    this.maxLimit = maxLimit;
+  }
+
+  public double getTolerance() {
+    return tolerance;
+  }
+
+  public void setTolerance(double tolerance) {
+    this.tolerance = tolerance;
+  }
+
+  public double getSmoothing() {
+    return smoothing;
+  }
+
+  public void setSmoothing(double smoothing) {
+    this.smoothing = smoothing;
+  }
+}
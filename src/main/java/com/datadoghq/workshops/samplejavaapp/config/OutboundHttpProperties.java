@@ -0,0 +1,356 @@
+package com.datadoghq.workshops.samplejavaapp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "outbound.http")
+public class OutboundHttpProperties {
+
+  private Duration connectTimeout = Duration.ofSeconds(5);
+  private Duration readTimeout = Duration.ofSeconds(5);
+
+  /**
+   * How long a caller may wait for a pooled connection before the request fails.
+   */
+  private Duration poolAcquireTimeout = Duration.ofSeconds(2);
+
+  private int maxConnectionsTotal = 200;
+
+  /**
+   * Upper bound of open connections per destination (scheme + host + port), so one busy host can't take the pool.
+   */
+  private int maxConnectionsPerHost = 20;
+
+  /**
+   * Keep-alive connections idle for longer than this are closed by a background evictor.
+   */
+  private Duration idleTimeout = Duration.ofSeconds(30);
+
+  /**
+   * Hard cap on the lifetime of a pooled connection, regardless of activity.
+   */
+  private Duration connectionTimeToLive = Duration.ofMinutes(5);
+
+  /**
+   * Delay between staggered connection attempts when a host has several vetted addresses (RFC 8305 recommends
+   * 250 ms).
+   */
+  private Duration connectionAttemptDelay = Duration.ofMillis(250);
+
+  /**
+   * How long the addresses vetted by URL validation are used for connecting before the host is resolved again.
+   */
+  private Duration vettedAddressTtl = Duration.ofMinutes(5);
+
+  /**
+   * Hosts whose vetted addresses are remembered; past this the least recently used host is forgotten and has to be
+   * validated again before the pooled client connects to it.
+   */
+  private int vettedAddressMaxHosts = 1024;
+
+  private Cache cache = new Cache();
+
+  private Snapshot snapshot = new Snapshot();
+
+  private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+  private Bulkhead bulkhead = new Bulkhead();
+
+  public Duration getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  public void setConnectTimeout(Duration connectTimeout) {
+    this.connectTimeout = connectTimeout;
+  }
+
+  public Duration getReadTimeout() {
+    return readTimeout;
+  }
+
+  public void setReadTimeout(Duration readTimeout) {
+    this.readTimeout = readTimeout;
+  }
+
+  public Duration getPoolAcquireTimeout() {
+    return poolAcquireTimeout;
+  }
+
+  public void setPoolAcquireTimeout(Duration poolAcquireTimeout) {
+    this.poolAcquireTimeout = poolAcquireTimeout;
+  }
+
+  public int getMaxConnectionsTotal() {
+    return maxConnectionsTotal;
+  }
+
+  public void setMaxConnectionsTotal(int maxConnectionsTotal) {
+    this.maxConnectionsTotal = maxConnectionsTotal;
+  }
+
+  public int getMaxConnectionsPerHost() {
+    return maxConnectionsPerHost;
+  }
+
+  public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+    this.maxConnectionsPerHost = maxConnectionsPerHost;
+  }
+
+  public Duration getIdleTimeout() {
+    return idleTimeout;
+  }
+
+  public void setIdleTimeout(Duration idleTimeout) {
+    this.idleTimeout = idleTimeout;
+  }
+
+  public Duration getConnectionTimeToLive() {
+    return connectionTimeToLive;
+  }
+
+  public void setConnectionTimeToLive(Duration connectionTimeToLive) {
+    this.connectionTimeToLive = connectionTimeToLive;
+  }
+
+  public Duration getConnectionAttemptDelay() {
+    return connectionAttemptDelay;
+  }
+
+  public void setConnectionAttemptDelay(Duration connectionAttemptDelay) {
+    this.connectionAttemptDelay = connectionAttemptDelay;
+  }
+
+  public Duration getVettedAddressTtl() {
+    return vettedAddressTtl;
+  }
+
+  public void setVettedAddressTtl(Duration vettedAddressTtl) {
+    this.vettedAddressTtl = vettedAddressTtl;
+  }
+
+  public int getVettedAddressMaxHosts() {
+    return vettedAddressMaxHosts;
+  }
+
+  public void setVettedAddressMaxHosts(int vettedAddressMaxHosts) {
+    this.vettedAddressMaxHosts = vettedAddressMaxHosts;
+  }
+
+  public Cache getCache() {
+    return cache;
+  }
+
+  public void setCache(Cache cache) {
+    this.cache = cache;
+  }
+
+  public Snapshot getSnapshot() {
+    return snapshot;
+  }
+
+  public void setSnapshot(Snapshot snapshot) {
+    this.snapshot = snapshot;
+  }
+
+  public CircuitBreaker getCircuitBreaker() {
+    return circuitBreaker;
+  }
+
+  public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+    this.circuitBreaker = circuitBreaker;
+  }
+
+  public Bulkhead getBulkhead() {
+    return bulkhead;
+  }
+
+  public void setBulkhead(Bulkhead bulkhead) {
+    this.bulkhead = bulkhead;
+  }
+
+  public static class Cache {
+    private boolean enabled = true;
+
+    /**
+     * Total body bytes kept in the response cache; least recently used entries are evicted beyond this.
+     */
+    private DataSize maxSize = DataSize.ofMegabytes(16);
+
+    /**
+     * Responses with larger bodies are passed through without being cached.
+     */
+    private DataSize maxEntrySize = DataSize.ofKilobytes(256);
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public DataSize getMaxSize() {
+      return maxSize;
+    }
+
+    public void setMaxSize(DataSize maxSize) {
+      this.maxSize = maxSize;
+    }
+
+    public DataSize getMaxEntrySize() {
+      return maxEntrySize;
+    }
+
+    public void setMaxEntrySize(DataSize maxEntrySize) {
+      this.maxEntrySize = maxEntrySize;
+    }
+  }
+
+  public static class Snapshot {
+    /**
+     * Save vetted addresses and cached responses on graceful shutdown and restore them on startup.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Snapshot file. Only useful across deploys if it lives on a volume that outlasts the container.
+     */
+    private Path path = Path.of("/tmp/samplejavaapp/warm-state.snapshot");
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public Path getPath() {
+      return path;
+    }
+
+    public void setPath(Path path) {
+      this.path = path;
+    }
+  }
+
+  public static class CircuitBreaker {
+    /**
+     * Percentage of failed calls (errors, timeouts, 5xx) in the window at which the breaker opens.
+     */
+    private float failureRateThreshold = 50;
+
+    /**
+     * Percentage of calls slower than slowCallDuration in the window at which the breaker opens.
+     */
+    private float slowCallRateThreshold = 80;
+
+    private Duration slowCallDuration = Duration.ofSeconds(2);
+
+    /**
+     * Number of most recent calls per host the rates are computed over.
+     */
+    private int slidingWindowSize = 20;
+
+    /**
+     * Calls needed in the window before the rates are acted on.
+     */
+    private int minimumCalls = 10;
+
+    /**
+     * How long an open breaker rejects calls before letting trial calls through.
+     */
+    private Duration waitInOpen = Duration.ofSeconds(30);
+
+    private int permittedCallsInHalfOpen = 3;
+
+    /**
+     * Hosts tracked before idle ones with a closed breaker are forgotten, least recently used first.
+     */
+    private int maxHosts = 10_000;
+
+    public float getFailureRateThreshold() {
+      return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(float failureRateThreshold) {
+      this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public float getSlowCallRateThreshold() {
+      return slowCallRateThreshold;
+    }
+
+    public void setSlowCallRateThreshold(float slowCallRateThreshold) {
+      this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    public Duration getSlowCallDuration() {
+      return slowCallDuration;
+    }
+
+    public void setSlowCallDuration(Duration slowCallDuration) {
+      this.slowCallDuration = slowCallDuration;
+    }
+
+    public int getSlidingWindowSize() {
+      return slidingWindowSize;
+    }
+
+    public void setSlidingWindowSize(int slidingWindowSize) {
+      this.slidingWindowSize = slidingWindowSize;
+    }
+
+    public int getMinimumCalls() {
+      return minimumCalls;
+    }
+
+    public void setMinimumCalls(int minimumCalls) {
+      this.minimumCalls = minimumCalls;
+    }
+
+    public Duration getWaitInOpen() {
+      return waitInOpen;
+    }
+
+    public void setWaitInOpen(Duration waitInOpen) {
+      this.waitInOpen = waitInOpen;
+    }
+
+    public int getPermittedCallsInHalfOpen() {
+      return permittedCallsInHalfOpen;
+    }
+
+    public void setPermittedCallsInHalfOpen(int permittedCallsInHalfOpen) {
+      this.permittedCallsInHalfOpen = permittedCallsInHalfOpen;
+    }
+
+    public int getMaxHosts() {
+      return maxHosts;
+    }
+
+    public void setMaxHosts(int maxHosts) {
+      this.maxHosts = maxHosts;
+    }
+  }
+
+  public static class Bulkhead {
+    /**
+     * Calls allowed in flight per destination host; further calls are rejected instead of queued.
+     */
+    private int maxConcurrentCallsPerHost = 10;
+
+    public int getMaxConcurrentCallsPerHost() {
+      return maxConcurrentCallsPerHost;
+    }
+
+    public void setMaxConcurrentCallsPerHost(int maxConcurrentCallsPerHost) {
+      this.maxConcurrentCallsPerHost = maxConcurrentCallsPerHost;
+    }
+  }
+}
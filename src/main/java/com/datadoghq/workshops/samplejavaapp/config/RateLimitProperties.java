@@ -0,0 +1,76 @@
+package com.datadoghq.workshops.samplejavaapp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+  private boolean enabled = true;
+
+  /**
+   * Upper bound for the client addresses tracked per endpoint. The least recently seen clients are forgotten first.
+   */
+  private int maxClients = 10_000;
+
+  /**
+   * Token bucket per endpoint, keyed by path without the leading slash. Endpoints without an entry are not limited.
+   */
+  private Map<String, Limit> endpoints = new LinkedHashMap<>();
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public int getMaxClients() {
+    return maxClients;
+  }
+
+  public void setMaxClients(int maxClients) {
+    this.maxClients = maxClients;
+  }
+
+  public Map<String, Limit> getEndpoints() {
+    return endpoints;
+  }
+
+  public void setEndpoints(Map<String, Limit> endpoints) {
+    this.endpoints = endpoints;
+  }
+
+  public static class Limit {
+    /**
+     * Sustained requests per second allowed for one client.
+     */
+    private double permitsPerSecond = 1;
+
+    /**
+     * Requests one client may send at once after being idle.
+     */
+    private int burst = 1;
+
+    public double getPermitsPerSecond() {
+      return permitsPerSecond;
+    }
+
+    public void setPermitsPerSecond(double permitsPerSecond) {
+      this.permitsPerSecond = permitsPerSecond;
+    }
+
+    public int getBurst() {
+      return burst;
+    }
+
+    public void setBurst(int burst) {
+      this.burst = burst;
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package com.datadoghq.workshops.samplejavaapp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+@ConfigurationProperties(prefix = "request.deadline")
+public class RequestDeadlineProperties {
+
+  /**
+   * End-to-end budget for endpoints without an entry in endpoints.
+   */
+  private Duration defaultTimeout = Duration.ofSeconds(10);
+
+  /**
+   * End-to-end budget per endpoint, keyed by path without the leading slash. A caller may ask for less through the
+   * X-Request-Timeout header, never for more.
+   */
+  private Map<String, Duration> endpoints = new LinkedHashMap<>();
+
+  public Duration getDefaultTimeout() {
+    return defaultTimeout;
+  }
+
+  public void setDefaultTimeout(Duration defaultTimeout) {
+    this.defaultTimeout = defaultTimeout;
+  }
+
+  public Map<String, Duration> getEndpoints() {
+    return endpoints;
+  }
+
+  public void setEndpoints(Map<String, Duration> endpoints) {
+    this.endpoints = endpoints;
+  }
+
+  public Duration timeoutFor(String endpoint) {
+    return endpoints.getOrDefault(endpoint, defaultTimeout);
+  }
+}
@@ -3,6 +3,7 @@ package com.datadoghq.workshops.samplejavaapp.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -12,6 +13,7 @@ public class URLValidationProperties {
 
   private Whitelist whitelist = new Whitelist();
   private Blacklist blacklist = new Blacklist();
+  private Dns dns = new Dns();
 
   /**
    * If non-empty, only these ports are allowed. Use -1 (unset) to represent default ports.
@@ -35,6 +37,14 @@ public class URLValidationProperties {
     this.blacklist = blacklist;
   }
 
+  public Dns getDns() {
+    return dns;
+  }
+
+  public void setDns(Dns dns) {
+    this.dns = dns;
+  }
+
   public List<Integer> getAllowedPorts() {
     return allowedPorts;
   }
@@ -91,5 +101,46 @@ public class URLValidationProperties {
       this.hosts = hosts;
     }
   }
-}
 
+  public static class Dns {
+    /**
+     * Resolve A and AAAA records in parallel with our own deadline instead of the blocking system resolver. The
+     * async resolver queries DNS servers only: names from /etc/hosts or other nsswitch sources do not resolve.
+     */
+    private boolean asyncEnabled = false;
+
+    /**
+     * Overall budget for resolving a host. When it runs out the host is treated as unresolvable (fail closed).
+     */
+    private Duration timeout = Duration.ofSeconds(2);
+
+    /**
+     * Nameservers as "host" or "host:port". Empty uses the system resolver configuration.
+     */
+    private List<String> servers = new ArrayList<>();
+
+    public boolean isAsyncEnabled() {
+      return asyncEnabled;
+    }
+
+    public void setAsyncEnabled(boolean asyncEnabled) {
+      this.asyncEnabled = asyncEnabled;
+    }
+
+    public Duration getTimeout() {
+      return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+      this.timeout = timeout;
+    }
+
+    public List<String> getServers() {
+      return servers;
+    }
+
+    public void setServers(List<String> servers) {
+      this.servers = servers;
+    }
+  }
+}
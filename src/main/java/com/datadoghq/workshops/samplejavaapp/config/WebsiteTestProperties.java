@@ -0,0 +1,194 @@
+package com.datadoghq.workshops.samplejavaapp.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "website.test")
+public class WebsiteTestProperties {
+
+  /**
+   * Maximum number of body bytes passed through to the caller. Longer bodies are cut off at this size.
+   */
+  private DataSize maxBodySize = DataSize.ofMegabytes(1);
+
+  /**
+   * Size of the fixed buffer used to copy the remote body to the caller.
+   */
+  private DataSize bufferSize = DataSize.ofKilobytes(8);
+
+  /**
+   * Number of body bytes returned by probe requests when the caller does not ask for a specific amount.
+   */
+  private DataSize defaultProbeSize = DataSize.ofKilobytes(1);
+
+  /**
+   * Upper bound for the body bytes a probe request may ask for.
+   */
+  private DataSize maxProbeSize = DataSize.ofKilobytes(64);
+
+  /**
+   * Memory for bodies buffered by /test-website-async, across all requests in flight. It is charged one buffer-size
+   * chunk at a time as bodies are read; a request that finds it spent is rejected with 503.
+   */
+  private DataSize asyncBufferBudget = DataSize.ofMegabytes(64);
+
+  private Streaming streaming = new Streaming();
+
+  private Batch batch = new Batch();
+
+  public DataSize getMaxBodySize() {
+    return maxBodySize;
+  }
+
+  public void setMaxBodySize(DataSize maxBodySize) {
+    this.maxBodySize = maxBodySize;
+  }
+
+  public DataSize getBufferSize() {
+    return bufferSize;
+  }
+
+  public void setBufferSize(DataSize bufferSize) {
+    this.bufferSize = bufferSize;
+  }
+
+  public DataSize getDefaultProbeSize() {
+    return defaultProbeSize;
+  }
+
+  public void setDefaultProbeSize(DataSize defaultProbeSize) {
+    this.defaultProbeSize = defaultProbeSize;
+  }
+
+  public DataSize getMaxProbeSize() {
+    return maxProbeSize;
+  }
+
+  public void setMaxProbeSize(DataSize maxProbeSize) {
+    this.maxProbeSize = maxProbeSize;
+  }
+
+  public DataSize getAsyncBufferBudget() {
+    return asyncBufferBudget;
+  }
+
+  public void setAsyncBufferBudget(DataSize asyncBufferBudget) {
+    this.asyncBufferBudget = asyncBufferBudget;
+  }
+
+  public Streaming getStreaming() {
+    return streaming;
+  }
+
+  public void setStreaming(Streaming streaming) {
+    this.streaming = streaming;
+  }
+
+  public Batch getBatch() {
+    return batch;
+  }
+
+  public void setBatch(Batch batch) {
+    this.batch = batch;
+  }
+
+  public static class Streaming {
+    /**
+     * Website bodies streamed to callers at the same time. Each stream holds one MVC async thread.
+     */
+    private int maxConcurrent = 200;
+
+    /**
+     * Streams waiting for a thread once all are busy. Further /test-website calls are rejected with 503.
+     */
+    private int queueCapacity = 100;
+
+    public int getMaxConcurrent() {
+      return maxConcurrent;
+    }
+
+    public void setMaxConcurrent(int maxConcurrent) {
+      this.maxConcurrent = maxConcurrent;
+    }
+
+    public int getQueueCapacity() {
+      return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+      this.queueCapacity = queueCapacity;
+    }
+  }
+
+  public static class Batch {
+    /**
+     * Largest number of URLs accepted in one batch request.
+     */
+    private int maxUrls = 500;
+
+    /**
+     * Batch fetches in flight across all batch requests.
+     */
+    private int maxConcurrency = 64;
+
+    /**
+     * Batch fetches in flight against any single destination host.
+     */
+    private int maxPerHost = 4;
+
+    /**
+     * Batch fetches waiting for a slot across all batch requests. Fetches beyond this fail right away with
+     * "Server busy" in their result line.
+     */
+    private int maxWaiting = 2000;
+
+    /**
+     * Time after which a batch response is closed, with or without all results.
+     */
+    private Duration timeout = Duration.ofMinutes(2);
+
+    public int getMaxUrls() {
+      return maxUrls;
+    }
+
+    public void setMaxUrls(int maxUrls) {
+      this.maxUrls = maxUrls;
+    }
+
+    public int getMaxConcurrency() {
+      return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+      this.maxConcurrency = maxConcurrency;
+    }
+
+    public int getMaxPerHost() {
+      return maxPerHost;
+    }
+
+    public void setMaxPerHost(int maxPerHost) {
+      this.maxPerHost = maxPerHost;
+    }
+
+    public int getMaxWaiting() {
+      return maxWaiting;
+    }
+
+    public void setMaxWaiting(int maxWaiting) {
+      this.maxWaiting = maxWaiting;
+    }
+
+    public Duration getTimeout() {
+      return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+      this.timeout = timeout;
+    }
+  }
+}
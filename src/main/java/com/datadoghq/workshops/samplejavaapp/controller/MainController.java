@@ -2,25 +2,67 @@ package com.datadoghq.workshops.samplejavaapp.controller;
 
 import com.datadoghq.workshops.samplejavaapp.exception.FileForbiddenFileException;
 import com.datadoghq.workshops.samplejavaapp.exception.FileReadException;
+import com.datadoghq.workshops.samplejavaapp.config.RequestDeadlineProperties;
+import com.datadoghq.workshops.samplejavaapp.config.WebsiteTestProperties;
+import com.datadoghq.workshops.samplejavaapp.exception.DeadlineExceededException;
+import com.datadoghq.workshops.samplejavaapp.exception.HostUnavailableException;
 import com.datadoghq.workshops.samplejavaapp.exception.InvalidDomainException;
+import com.datadoghq.workshops.samplejavaapp.exception.InvalidURLBatchException;
 import com.datadoghq.workshops.samplejavaapp.exception.InvalidURLException;
 import com.datadoghq.workshops.samplejavaapp.exception.UnableToTestDomainException;
 import com.datadoghq.workshops.samplejavaapp.http.DomainTestRequest;
 import com.datadoghq.workshops.samplejavaapp.http.ViewFileRequest;
+import com.datadoghq.workshops.samplejavaapp.http.WebsiteBatchTestRequest;
+import com.datadoghq.workshops.samplejavaapp.http.WebsiteProbeResponse;
 import com.datadoghq.workshops.samplejavaapp.http.WebsiteTestRequest;
+import com.datadoghq.workshops.samplejavaapp.outbound.Deadline;
+import com.datadoghq.workshops.samplejavaapp.service.AsyncWebsiteTestService;
+import com.datadoghq.workshops.samplejavaapp.service.BatchWebsiteTestService;
 import com.datadoghq.workshops.samplejavaapp.service.DomainTestService;
 import com.datadoghq.workshops.samplejavaapp.service.FileService;
 import com.datadoghq.workshops.samplejavaapp.service.WebsiteTestService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.TypeMismatchException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageConversionException;
+import org.springframework.web.ErrorResponse;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RestController
 public class MainController {
 
+  /**
+   * Lets a caller shorten an endpoint's deadline, in milliseconds.
+   */
+  static final String REQUEST_TIMEOUT_HEADER = "X-Request-Timeout";
+
+  /**
+   * Trailer set to "true" on a /test-website response whose body was cut off at website.test.max-body-size.
+   */
+  static final String BODY_TRUNCATED_TRAILER = "X-Body-Truncated";
+
   public Logger log = LoggerFactory.getLogger(MainController.class);
 
   @Autowired
@@ -29,15 +71,34 @@ public class MainController {
   @Autowired
   private WebsiteTestService websiteTestService;
 
+  @Autowired
+  private AsyncWebsiteTestService asyncWebsiteTestService;
+
+  @Autowired
+  private BatchWebsiteTestService batchWebsiteTestService;
+
+  @Autowired
+  private WebsiteTestProperties websiteTestProperties;
+
+  @Autowired
+  private RequestDeadlineProperties deadlineProperties;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
   @Autowired
   private FileService fileService;
 
   @RequestMapping(method=RequestMethod.POST, value="/test-domain", consumes="application/json")
-  public ResponseEntity<String> testDomain(@RequestBody DomainTestRequest request) {
+  public ResponseEntity<String> testDomain(@RequestBody DomainTestRequest request,
+                                           @RequestHeader(value=REQUEST_TIMEOUT_HEADER, required=false) String requestTimeout) {
     log.info("Testing domain {}", request.domainName);
+    Deadline deadline = deadlineFor("test-domain", requestTimeout);
     try {
-      String result = domainTestService.testDomain(request.domainName);
+      String result = domainTestService.testDomain(request.domainName, deadline);
       return new ResponseEntity<>(result, HttpStatus.OK);
+    } catch (DeadlineExceededException e) {
+      return handleDeadlineExceeded(e);
     } catch(InvalidDomainException e) {
       log.info("Invalid domain name provided: {}", request.domainName);
       return new ResponseEntity<>("Invalid domain name", HttpStatus.BAD_REQUEST);
@@ -51,23 +112,189 @@ public class MainController {
   }
 
   @RequestMapping(method=RequestMethod.POST, value="/test-website", consumes="application/json")
-  public ResponseEntity<String> testWebsite(@RequestBody WebsiteTestRequest request) {
+  public ResponseEntity<StreamingResponseBody> testWebsite(@RequestBody WebsiteTestRequest request,
+                                                          @RequestHeader(value=REQUEST_TIMEOUT_HEADER, required=false) String requestTimeout,
+                                                          HttpServletResponse response) {
     log.info("Testing website {}", request.url);
+    Deadline deadline = deadlineFor("test-website", requestTimeout);
     try {
-      String result = websiteTestService.testWebsite(request);
-      return new ResponseEntity<>(result, HttpStatus.OK);
+      AtomicBoolean truncated = new AtomicBoolean();
+      StreamingResponseBody body = websiteTestService.testWebsite(request, deadline, () -> truncated.set(true));
+      ResponseEntity.BodyBuilder ok = ResponseEntity.ok().contentType(MediaType.TEXT_PLAIN);
+      if (sendTruncationTrailer(response, truncated)) {
+        ok.header(HttpHeaders.TRAILER, BODY_TRUNCATED_TRAILER);
+      }
+      return ok.body(body);
     } catch (InvalidURLException e) {
       log.warn("Blocked website test attempt. reason={} url={}", e.getReason(), request.url);
-      return new ResponseEntity<>("Invalid URL", HttpStatus.BAD_REQUEST);
-    } catch (Exception e) {
-      log.error("Unexpected error testing website url={}", request.url, e);
-      return new ResponseEntity<>("Internal server error", HttpStatus.INTERNAL_SERVER_ERROR);
+      throw e;
+    }
+  }
+
+  @RequestMapping(method=RequestMethod.POST, value="/test-website-async", consumes="application/json")
+  public CompletableFuture<ResponseEntity<byte[]>> testWebsiteAsync(@RequestBody WebsiteTestRequest request,
+                                                                  @RequestHeader(value=REQUEST_TIMEOUT_HEADER, required=false) String requestTimeout) {
+    log.info("Testing website asynchronously {}", request.url);
+    Deadline deadline = deadlineFor("test-website-async", requestTimeout);
+    try {
+      return asyncWebsiteTestService.testWebsite(request, deadline)
+          .thenApply(body -> ResponseEntity.ok().contentType(MediaType.TEXT_PLAIN).body(body))
+          .exceptionally(e -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof DeadlineExceededException deadlineExceeded) {
+              ResponseEntity<String> response = handleDeadlineExceeded(deadlineExceeded);
+              return new ResponseEntity<>(response.getBody().getBytes(StandardCharsets.UTF_8), response.getStatusCode());
+            }
+            if (cause instanceof TaskRejectedException rejected) {
+              throw rejected;
+            }
+            log.error("Unexpected error testing website url={}", request.url, e);
+            return new ResponseEntity<>("Internal server error".getBytes(StandardCharsets.UTF_8), HttpStatus.INTERNAL_SERVER_ERROR);
+          });
+    } catch (InvalidURLException e) {
+      log.warn("Blocked website test attempt. reason={} url={}", e.getReason(), request.url);
+      throw e;
+    } catch (IllegalArgumentException e) {
+      log.info("Rejected website test request url={}: {}", request.url, e.getMessage());
+      return CompletableFuture.completedFuture(
+          new ResponseEntity<>("Invalid request".getBytes(StandardCharsets.UTF_8), HttpStatus.BAD_REQUEST));
+    }
+  }
+
+  // Streams one JSON result per line, in completion order; each line carries the index of its URL in the request.
+  // The deadline bounds URL validation; the fetches are bounded by website.test.batch.timeout.
+  @RequestMapping(method=RequestMethod.POST, value="/test-websites", consumes="application/json")
+  public ResponseEntity<ResponseBodyEmitter> testWebsites(@RequestBody WebsiteBatchTestRequest request,
+                                                          @RequestHeader(value=REQUEST_TIMEOUT_HEADER, required=false) String requestTimeout) {
+    log.info("Testing {} websites", request.urls == null ? 0 : request.urls.size());
+    Deadline deadline = deadlineFor("test-websites", requestTimeout);
+    ResponseBodyEmitter emitter = new ResponseBodyEmitter(websiteTestProperties.getBatch().getTimeout().toMillis());
+    CompletableFuture<Void> batch;
+    try {
+      batch = batchWebsiteTestService.testWebsites(request, deadline, result -> {
+        try {
+          // One send per line so results completing on different threads never interleave.
+          emitter.send(objectMapper.writeValueAsString(result) + "\n", MediaType.APPLICATION_NDJSON);
+        } catch (IOException | IllegalStateException e) {
+          log.debug("Dropped website batch result index={}: {}", result.index, e.getMessage());
+        }
+      });
+    } catch (IllegalArgumentException e) {
+      log.info("Rejected website batch: {}", e.getMessage());
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid request");
+    }
+    batch.whenComplete((ignored, e) -> {
+      if (e == null) {
+        emitter.complete();
+      } else if (!(e instanceof CancellationException)) {
+        log.error("Unexpected error testing websites", e);
+        emitter.completeWithError(e);
+      }
+    });
+    // Once the response is over, by timeout, a client that went away or normal completion, nothing that is still
+    // running or waiting for a slot has anywhere to go.
+    emitter.onTimeout(() -> batch.cancel(true));
+    emitter.onError(e -> batch.cancel(true));
+    emitter.onCompletion(() -> batch.cancel(true));
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(emitter);
+  }
+
+  @RequestMapping(method=RequestMethod.POST, value="/probe-website", consumes="application/json")
+  public ResponseEntity<WebsiteProbeResponse> probeWebsite(@RequestBody WebsiteTestRequest request,
+                                                           @RequestHeader(value=REQUEST_TIMEOUT_HEADER, required=false) String requestTimeout) {
+    log.info("Probing website {}", request.url);
+    Deadline deadline = deadlineFor("probe-website", requestTimeout);
+    try {
+      WebsiteProbeResponse result = websiteTestService.probeWebsite(request, deadline);
+      return new ResponseEntity<>(result, HttpStatus.OK);
+    } catch (InvalidURLException e) {
+      log.warn("Blocked website probe attempt. reason={} url={}", e.getReason(), request.url);
+      throw e;
+    }
+  }
+
+  @ExceptionHandler(InvalidURLException.class)
+  public ResponseEntity<String> handleInvalidURL(InvalidURLException e) {
+    return new ResponseEntity<>("Invalid URL", HttpStatus.BAD_REQUEST);
+  }
+
+  @ExceptionHandler(HostUnavailableException.class)
+  public ResponseEntity<String> handleHostUnavailable(HostUnavailableException e) {
+    log.warn("Rejected website test for unavailable host. reason={}", e.getReason());
+    return new ResponseEntity<>("Host temporarily unavailable", HttpStatus.SERVICE_UNAVAILABLE);
+  }
+
+  @ExceptionHandler(DeadlineExceededException.class)
+  public ResponseEntity<String> handleDeadlineExceeded(DeadlineExceededException e) {
+    String stage = e.getStage().name().toLowerCase(Locale.ROOT);
+    log.warn("Request deadline exceeded. stage={}", stage);
+    return new ResponseEntity<>("Deadline exceeded during " + stage, HttpStatus.GATEWAY_TIMEOUT);
+  }
+
+  @ExceptionHandler(InvalidURLBatchException.class)
+  public ResponseEntity<Map<String, Object>> handleInvalidURLBatch(InvalidURLBatchException e) {
+    return new ResponseEntity<>(Map.of("error", "Invalid URL", "invalid", e.getInvalidIndexes()), HttpStatus.BAD_REQUEST);
+  }
+
+  // /test-website bodies are streamed on a bounded executor and /test-website-async bodies are buffered within a
+  // fixed budget; when either is spent the request is turned away before anything is fetched.
+  @ExceptionHandler(TaskRejectedException.class)
+  public ResponseEntity<String> handleStreamRejected(TaskRejectedException e) {
+    log.warn("Rejected website test, server is at capacity: {}", e.getMessage());
+    return new ResponseEntity<>("Server busy", HttpStatus.SERVICE_UNAVAILABLE);
+  }
+
+  // Website bodies are streamed after the handler returns, so upstream failures surface here rather than in a catch
+  // block. Exceptions that carry their own status (malformed JSON, an invalid X-Request-Timeout, async timeouts) and
+  // failed writes to a client that went away are left to Spring.
+  @ExceptionHandler(Exception.class)
+  public ResponseEntity<String> handleUnexpected(Exception e) throws Exception {
+    if (e instanceof ErrorResponse || e instanceof HttpMessageConversionException || e instanceof TypeMismatchException
+        || e instanceof IOException) {
+      throw e;
+    }
+    log.error("Unexpected error handling request", e);
+    return new ResponseEntity<>("Internal server error", HttpStatus.INTERNAL_SERVER_ERROR);
+  }
+
+  /**
+   * Registers the truncation trailer, evaluated once the body is written. Trailers need a chunked HTTP/1.1 or an
+   * HTTP/2 response; HTTP/1.0 callers only get the cut-off body.
+   */
+  private static boolean sendTruncationTrailer(HttpServletResponse response, AtomicBoolean truncated) {
+    try {
+      response.setTrailerFields(() -> truncated.get() ? Map.of(BODY_TRUNCATED_TRAILER, "true") : Map.of());
+      return true;
+    } catch (IllegalStateException e) {
+      return false;
+    }
+  }
+
+  /**
+   * The endpoint's configured budget, or less if the caller asked for less through the X-Request-Timeout header.
+   */
+  private Deadline deadlineFor(String endpoint, String requestTimeout) {
+    Duration budget = deadlineProperties.timeoutFor(endpoint);
+    if (requestTimeout != null) {
+      long millis;
+      try {
+        millis = Long.parseLong(requestTimeout.trim());
+      } catch (NumberFormatException e) {
+        millis = -1;
+      }
+      if (millis <= 0) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid " + REQUEST_TIMEOUT_HEADER);
+      }
+      if (millis < budget.toMillis()) {
+        budget = Duration.ofMillis(millis);
+      }
     }
+    return Deadline.after(budget);
   }
 
   @RequestMapping(method=RequestMethod.POST, value="/view-file", consumes="application/json")
   public ResponseEntity<String> viewFile(@RequestBody ViewFileRequest request) {
-    log.info("Reading file " + request.path);
+    log.info("Reading file {}", request.path);
     try {
       String result = fileService.readFile(request.path);
       return new ResponseEntity<>(result, HttpStatus.OK);
@@ -0,0 +1,31 @@
+package com.datadoghq.workshops.samplejavaapp.exception;
+
+/**
+ * Thrown when a request runs out of its end-to-end time budget. The stage is the step that was running, or about
+ * to start, when the budget ran out.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+  public enum Stage {
+    DNS,
+    CONNECT,
+    READ,
+    PING
+  }
+
+  private final Stage stage;
+
+  public DeadlineExceededException(Stage stage, String message) {
+    super(message);
+    this.stage = stage;
+  }
+
+  public DeadlineExceededException(Stage stage, String message, Throwable cause) {
+    super(message, cause);
+    this.stage = stage;
+  }
+
+  public Stage getStage() {
+    return stage;
+  }
+}
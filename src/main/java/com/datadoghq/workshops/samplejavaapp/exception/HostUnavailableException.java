@@ -0,0 +1,24 @@
+package com.datadoghq.workshops.samplejavaapp.exception;
+
+/**
+ * Thrown when an outbound call is refused locally because its destination host is failing or already has as many
+ * calls in flight as it is allowed.
+ */
+public class HostUnavailableException extends RuntimeException {
+
+  public enum Reason {
+    CIRCUIT_OPEN,
+    BULKHEAD_FULL
+  }
+
+  private final Reason reason;
+
+  public HostUnavailableException(Reason reason, String message) {
+    super(message);
+    this.reason = reason;
+  }
+
+  public Reason getReason() {
+    return reason;
+  }
+}
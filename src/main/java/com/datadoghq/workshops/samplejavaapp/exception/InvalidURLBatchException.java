@@ -0,0 +1,22 @@
+package com.datadoghq.workshops.samplejavaapp.exception;
+
+import java.util.List;
+
+/**
+ * Thrown when a batch website test contains URLs that fail SSRF validation. Carries only the positions of the
+ * rejected URLs, not the individual reasons, for the same reason {@link InvalidURLException} keeps its messages
+ * generic.
+ */
+public class InvalidURLBatchException extends RuntimeException {
+
+  private final List<Integer> invalidIndexes;
+
+  public InvalidURLBatchException(List<Integer> invalidIndexes) {
+    super("Invalid or disallowed URLs in batch");
+    this.invalidIndexes = List.copyOf(invalidIndexes);
+  }
+
+  public List<Integer> getInvalidIndexes() {
+    return invalidIndexes;
+  }
+}
@@ -0,0 +1,12 @@
+package com.datadoghq.workshops.samplejavaapp.http;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class WebsiteBatchTestRequest {
+    public List<String> urls;
+    public String customHeaderKey;
+    public String customHeaderValue;
+}
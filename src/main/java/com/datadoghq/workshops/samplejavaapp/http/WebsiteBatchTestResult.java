@@ -0,0 +1,13 @@
+package com.datadoghq.workshops.samplejavaapp.http;
+
+import lombok.Data;
+
+@Data
+public class WebsiteBatchTestResult {
+    public int index;
+    public String url;
+    public Integer status;
+    public long bytes;
+    public long durationMs;
+    public String error;
+}
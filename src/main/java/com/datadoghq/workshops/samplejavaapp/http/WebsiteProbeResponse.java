@@ -0,0 +1,19 @@
+package com.datadoghq.workshops.samplejavaapp.http;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class WebsiteProbeResponse {
+    public int status;
+    public Map<String, List<String>> headers;
+    public String body;
+    public boolean truncated;
+
+    // Milliseconds per phase (dns, connect, tls, ttfb, download); only present when the request asked for timings.
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Map<String, Double> timings;
+}
@@ -7,4 +7,7 @@ public class WebsiteTestRequest {
     public String url;
     public String customHeaderKey;
     public String customHeaderValue;
+    public boolean headOnly;
+    public Integer probeBytes;
+    public boolean timings;
 }
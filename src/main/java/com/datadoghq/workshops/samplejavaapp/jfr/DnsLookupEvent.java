@@ -0,0 +1,25 @@
+package com.datadoghq.workshops.samplejavaapp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("samplejavaapp.DnsLookup")
+@Label("DNS Lookup")
+@Description("A and AAAA lookup of a host during URL validation")
+@Category({"Sample Java App", "URL Validation"})
+@StackTrace(false)
+public class DnsLookupEvent extends Event {
+
+  @Label("Host")
+  public String host;
+
+  @Label("Addresses")
+  public int addresses;
+
+  @Label("Outcome")
+  public String outcome;
+}
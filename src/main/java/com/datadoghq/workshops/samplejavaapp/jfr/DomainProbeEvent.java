@@ -0,0 +1,31 @@
+package com.datadoghq.workshops.samplejavaapp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("samplejavaapp.DomainProbe")
+@Label("Domain Probe")
+@Description("One ping of a domain for /test-domain, from starting the process to reading its output")
+@Category({"Sample Java App", "Domain Test"})
+@StackTrace(false)
+public class DomainProbeEvent extends Event {
+
+  @Label("Domain")
+  public String domain;
+
+  @Label("Exit Code")
+  @Description("Exit code of ping, or -1 if it did not exit in time")
+  public int exitCode = -1;
+
+  @Label("Bytes Read")
+  @DataAmount
+  public long bytesRead;
+
+  @Label("Outcome")
+  public String outcome;
+}
@@ -0,0 +1,27 @@
+package com.datadoghq.workshops.samplejavaapp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("samplejavaapp.FileRead")
+@Label("File Read")
+@Description("A file read for /view-file")
+@Category({"Sample Java App", "Files"})
+@StackTrace(false)
+public class FileReadEvent extends Event {
+
+  @Label("Path")
+  public String path;
+
+  @Label("Bytes Read")
+  @DataAmount
+  public long bytesRead;
+
+  @Label("Outcome")
+  public String outcome;
+}
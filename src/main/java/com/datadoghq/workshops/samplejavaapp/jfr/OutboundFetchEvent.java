@@ -0,0 +1,43 @@
+package com.datadoghq.workshops.samplejavaapp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("samplejavaapp.OutboundFetch")
+@Label("Outbound Fetch")
+@Description("One outbound website test call, from sending the request to the end of the body")
+@Category({"Sample Java App", "Website Test"})
+@StackTrace(false)
+public class OutboundFetchEvent extends Event {
+
+  @Label("Host")
+  @Description("Destination host; paths and query strings are left out as they may carry credentials")
+  public String host;
+
+  @Label("Method")
+  public String method;
+
+  @Label("Call")
+  @Description("stream, probe, async or batch")
+  public String call;
+
+  @Label("Status")
+  @Description("Response status, or 0 if no response was received")
+  public int status;
+
+  @Label("Bytes Read")
+  @DataAmount
+  public long bytesRead;
+
+  @Label("Bytes Served")
+  @DataAmount
+  public long bytesServed;
+
+  @Label("Outcome")
+  public String outcome;
+}
@@ -0,0 +1,52 @@
+package com.datadoghq.workshops.samplejavaapp.logging;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.ILoggerFactory;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+
+/**
+ * Exposes the logging pipeline's losses: events dropped by an {@link OverflowAsyncAppender} whose queue was full,
+ * the room left in that queue, and warnings denied by a {@link WarningSampler}.
+ */
+@Component
+public class LoggingMetrics implements MeterBinder {
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    ILoggerFactory factory = LoggerFactory.getILoggerFactory();
+    if (!(factory instanceof LoggerContext context)) {
+      return;
+    }
+    Iterator<Appender<ILoggingEvent>> appenders =
+        context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME).iteratorForAppenders();
+    while (appenders.hasNext()) {
+      if (appenders.next() instanceof OverflowAsyncAppender appender) {
+        FunctionCounter.builder("logging.events.dropped", appender, OverflowAsyncAppender::getDroppedCount)
+            .description("Log events below WARN dropped because the async queue was full")
+            .tag("appender", appender.getName())
+            .register(registry);
+        Gauge.builder("logging.queue.remaining", appender, OverflowAsyncAppender::getRemainingCapacity)
+            .description("Free slots in the async logging queue")
+            .tag("appender", appender.getName())
+            .register(registry);
+      }
+    }
+    for (TurboFilter filter : context.getTurboFilterList()) {
+      if (filter instanceof WarningSampler sampler) {
+        FunctionCounter.builder("logging.events.sampled", sampler, WarningSampler::getSampledCount)
+            .description("Repetitive warnings left out by sampling")
+            .register(registry);
+      }
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package com.datadoghq.workshops.samplejavaapp.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Async appender with an explicit policy for a full queue, so a slow stdout costs dropped INFO lines instead of
+ * request latency.
+ *
+ * With {@link OverflowPolicy#DROP}, events below WARN are dropped once fewer than reserve slots are left; the reserve
+ * keeps room for WARN and ERROR, which are never dropped and block if even the reserve is used up. With
+ * {@link OverflowPolicy#BLOCK}, every event waits for room. Dropped events are counted for the logging metrics.
+ */
+public class OverflowAsyncAppender extends AsyncAppender {
+
+  public enum OverflowPolicy {
+    DROP, BLOCK
+  }
+
+  private static final int UNDEFINED = -1;
+
+  private final LongAdder dropped = new LongAdder();
+  private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+  private int reserve = UNDEFINED;
+
+  public OverflowAsyncAppender() {
+    // Dropping is decided here so that it is counted; the base class must neither discard nor skip.
+    setDiscardingThreshold(0);
+    setNeverBlock(false);
+  }
+
+  @Override
+  public void start() {
+    if (reserve == UNDEFINED) {
+      reserve = getQueueSize() / 5;
+    }
+    super.start();
+  }
+
+  @Override
+  protected void append(ILoggingEvent event) {
+    if (overflowPolicy == OverflowPolicy.DROP
+        && !event.getLevel().isGreaterOrEqual(Level.WARN)
+        && getRemainingCapacity() <= reserve) {
+      dropped.increment();
+      return;
+    }
+    super.append(event);
+  }
+
+  public long getDroppedCount() {
+    return dropped.sum();
+  }
+
+  public OverflowPolicy getOverflowPolicy() {
+    return overflowPolicy;
+  }
+
+  public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+    this.overflowPolicy = overflowPolicy;
+  }
+
+  public int getReserve() {
+    return reserve;
+  }
+
+  /**
+   * Queue slots kept free for WARN and ERROR under the DROP policy. Defaults to a fifth of the queue.
+   */
+  public void setReserve(int reserve) {
+    this.reserve = reserve;
+  }
+}
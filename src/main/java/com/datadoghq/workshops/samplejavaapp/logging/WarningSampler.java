@@ -0,0 +1,103 @@
+package com.datadoghq.workshops.samplejavaapp.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import ch.qos.logback.core.util.Duration;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Samples repetitive warnings, such as one blocked-URL line per rejected request: per logger and message template,
+ * at most permits events are let through per interval and the rest are denied and counted. Only WARN events from
+ * loggers under one of the configured prefixes are sampled; ERROR always passes.
+ */
+public class WarningSampler extends TurboFilter {
+
+  // Templates are constants in the code, so this only guards against formats built at runtime.
+  private static final int MAX_KEYS = 1024;
+
+  private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+  private final LongAdder sampled = new LongAdder();
+  private final LongSupplier nanoClock;
+  private final List<String> loggerPrefixes = new ArrayList<>();
+  private int permits = 10;
+  private Duration interval = Duration.buildBySeconds(1);
+
+  public WarningSampler() {
+    this(System::nanoTime);
+  }
+
+  WarningSampler(LongSupplier nanoClock) {
+    this.nanoClock = nanoClock;
+  }
+
+  @Override
+  public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+    if (level != Level.WARN || format == null || !isStarted() || !sampledLogger(logger.getName())) {
+      return FilterReply.NEUTRAL;
+    }
+    String key = logger.getName() + '|' + format;
+    Window window = windows.get(key);
+    if (window == null) {
+      if (windows.size() >= MAX_KEYS) {
+        return FilterReply.NEUTRAL;
+      }
+      window = windows.computeIfAbsent(key, k -> new Window());
+    }
+    if (window.tryAcquire(nanoClock.getAsLong(), interval.getMilliseconds() * 1_000_000L, permits)) {
+      return FilterReply.NEUTRAL;
+    }
+    sampled.increment();
+    return FilterReply.DENY;
+  }
+
+  private boolean sampledLogger(String name) {
+    for (String prefix : loggerPrefixes) {
+      if (name.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public long getSampledCount() {
+    return sampled.sum();
+  }
+
+  public void addLoggerPrefix(String prefix) {
+    loggerPrefixes.add(prefix.trim());
+  }
+
+  public void setPermits(int permits) {
+    this.permits = permits;
+  }
+
+  public void setInterval(Duration interval) {
+    this.interval = interval;
+  }
+
+  /**
+   * Fixed window: the first event after the window ends opens the next one. Events racing with the rollover may be
+   * counted against either window, which is close enough for sampling.
+   */
+  private static final class Window {
+    private final AtomicLong start = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong count = new AtomicLong();
+
+    boolean tryAcquire(long now, long lengthNanos, int permits) {
+      long current = start.get();
+      if ((current == Long.MIN_VALUE || now - current >= lengthNanos) && start.compareAndSet(current, now)) {
+        count.set(0);
+      }
+      return count.incrementAndGet() <= permits;
+    }
+  }
+}
@@ -0,0 +1,190 @@
+package com.datadoghq.workshops.samplejavaapp.outbound;
+
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * HttpComponents request factory that aborts the connection when a response is closed before its body was read
+ * to the end.
+ *
+ * By default closing a response drains the rest of the body so the connection can go back to the pool. For a
+ * size-capped passthrough that means downloading everything past the cap; aborting drops the connection instead.
+ * Fully read responses are unaffected and keep their connection alive.
+ *
+ * It also caps the pool lease, connect and response timeouts of each request at what is left of the
+ * {@link Deadline} active on the calling thread, so a request never waits on the network past its budget.
+ */
+public class AbortOnEarlyCloseRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+  private final ThreadLocal<Cancellable> lastCreated = new ThreadLocal<>();
+
+  public AbortOnEarlyCloseRequestFactory(HttpClient httpClient) {
+    super(httpClient);
+  }
+
+  // The per-request connect timeout is deprecated in favour of ConnectionConfig, which is fixed per pool; it is still
+  // honoured when set and is the only way to shorten a single connect.
+  @Override
+  @SuppressWarnings("deprecation")
+  protected RequestConfig createRequestConfig(Object client) {
+    RequestConfig config = super.createRequestConfig(client);
+    Deadline deadline = Deadline.current();
+    if (deadline == Deadline.unbounded() || config == null) {
+      return config;
+    }
+    return RequestConfig.copy(config)
+        .setConnectionRequestTimeout(cap(deadline, config.getConnectionRequestTimeout()))
+        .setConnectTimeout(cap(deadline, config.getConnectTimeout()))
+        .setResponseTimeout(cap(deadline, config.getResponseTimeout()))
+        .build();
+  }
+
+  /**
+   * Caps a client timeout at the time left. Unset or disabled timeouts mean no limit, so they become the time left.
+   */
+  private static Timeout cap(Deadline deadline, Timeout timeout) {
+    Duration limit = timeout == null || timeout.isDisabled()
+        ? deadline.remaining()
+        : deadline.cap(Duration.ofMillis(timeout.toMilliseconds()));
+    return Timeout.ofMilliseconds(Math.max(1, limit.toMillis()));
+  }
+
+  @Override
+  protected void postProcessHttpRequest(ClassicHttpRequest request) {
+    if (request instanceof Cancellable cancellable) {
+      lastCreated.set(cancellable);
+    }
+  }
+
+  @Override
+  public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+    try {
+      ClientHttpRequest request = super.createRequest(uri, httpMethod);
+      Cancellable cancellable = lastCreated.get();
+      return cancellable == null ? request : new AbortableRequest(request, cancellable);
+    } finally {
+      lastCreated.remove();
+    }
+  }
+
+  private record AbortableRequest(ClientHttpRequest delegate, Cancellable cancellable) implements ClientHttpRequest {
+
+    @Override
+    public ClientHttpResponse execute() throws IOException {
+      return new AbortableResponse(delegate.execute(), delegate.getMethod(), cancellable);
+    }
+
+    @Override
+    public OutputStream getBody() throws IOException {
+      return delegate.getBody();
+    }
+
+    @Override
+    public HttpMethod getMethod() {
+      return delegate.getMethod();
+    }
+
+    @Override
+    public URI getURI() {
+      return delegate.getURI();
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return delegate.getHeaders();
+    }
+  }
+
+  private static final class AbortableResponse implements ClientHttpResponse {
+    private final ClientHttpResponse delegate;
+    private final HttpMethod method;
+    private final Cancellable cancellable;
+    private EofTrackingInputStream body;
+
+    AbortableResponse(ClientHttpResponse delegate, HttpMethod method, Cancellable cancellable) {
+      this.delegate = delegate;
+      this.method = method;
+      this.cancellable = cancellable;
+    }
+
+    @Override
+    public HttpStatusCode getStatusCode() throws IOException {
+      return delegate.getStatusCode();
+    }
+
+    @Override
+    public String getStatusText() throws IOException {
+      return delegate.getStatusText();
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return delegate.getHeaders();
+    }
+
+    @Override
+    public InputStream getBody() throws IOException {
+      if (body == null) {
+        body = new EofTrackingInputStream(delegate.getBody());
+      }
+      return body;
+    }
+
+    @Override
+    public void close() {
+      if (hasUnreadBody()) {
+        cancellable.cancel();
+      }
+      delegate.close();
+    }
+
+    private boolean hasUnreadBody() {
+      if (body != null) {
+        return !body.eof;
+      }
+      return !HttpMethod.HEAD.equals(method) && delegate.getHeaders().getContentLength() != 0;
+    }
+  }
+
+  private static final class EofTrackingInputStream extends FilterInputStream {
+    private boolean eof;
+
+    EofTrackingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b < 0) {
+        eof = true;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, len);
+      if (n < 0) {
+        eof = true;
+      }
+      return n;
+    }
+  }
+}
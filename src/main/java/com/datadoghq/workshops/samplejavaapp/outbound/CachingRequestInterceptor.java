@@ -0,0 +1,489 @@
+package com.datadoghq.workshops.samplejavaapp.outbound;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.support.HttpRequestWrapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Predicate;
+
+/**
+ * Shared HTTP cache for outbound GET requests, following RFC 9111.
+ *
+ * Entries are keyed on the URI and every request header, so a custom header sent by the caller gets an entry of
+ * its own. Fresh entries are answered without a network call. Stale entries are revalidated with If-None-Match /
+ * If-Modified-Since, or served as they are while a background refresh runs if the response allowed
+ * stale-while-revalidate. Bodies larger than the per-entry limit stream through without being stored.
+ *
+ * A background refresh is admitted like a caller's request: the URI has to pass URL validation again, which also
+ * vets the addresses the refresh connects to, then the host's breaker and bulkhead, and it runs within a deadline.
+ * An entry whose URI no longer passes validation is dropped.
+ */
+public class CachingRequestInterceptor implements ClientHttpRequestInterceptor {
+  private final Logger log = LoggerFactory.getLogger(CachingRequestInterceptor.class);
+
+  // Status codes that may be stored without explicit freshness information (RFC 9110 section 15.1).
+  private static final Set<Integer> CACHEABLE_BY_DEFAULT = Set.of(200, 203, 204, 300, 301, 308, 404, 405, 410, 414, 501);
+  private static final Duration MAX_HEURISTIC_LIFETIME = Duration.ofDays(1);
+  private static final Set<String> NOT_UPDATED_ON_REVALIDATION = Set.of(
+      "content-length", "transfer-encoding", "connection", "keep-alive");
+  // Set while the calling thread's requests bypass the cache.
+  private static final ThreadLocal<Boolean> bypassed = new ThreadLocal<>();
+
+  private final ClientHttpRequestFactory requestFactory;
+  private final ResponseCache cache;
+  private final int maxEntrySize;
+  private final Executor revalidationExecutor;
+  private final Revalidation revalidation;
+  private final Clock clock;
+  private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+
+  /**
+   * @param requestFactory factory used for background revalidation, outside of any caller's request
+   */
+  public CachingRequestInterceptor(ClientHttpRequestFactory requestFactory, long maxSize, int maxEntrySize,
+                                   Executor revalidationExecutor, Revalidation revalidation) {
+    this(requestFactory, maxSize, maxEntrySize, revalidationExecutor, revalidation, Clock.systemUTC());
+  }
+
+  CachingRequestInterceptor(ClientHttpRequestFactory requestFactory, long maxSize, int maxEntrySize,
+                            Executor revalidationExecutor, Revalidation revalidation, Clock clock) {
+    this.requestFactory = requestFactory;
+    this.cache = new ResponseCache(maxSize);
+    this.maxEntrySize = maxEntrySize;
+    this.revalidationExecutor = revalidationExecutor;
+    this.revalidation = revalidation;
+    this.clock = clock;
+  }
+
+  /**
+   * Sends requests made on the calling thread past the cache until the returned scope is closed: nothing is served
+   * from it or stored in it. For callers that read only part of a body, which storing would download in full.
+   */
+  public static Scope bypass() {
+    Boolean previous = bypassed.get();
+    bypassed.set(Boolean.TRUE);
+    return () -> {
+      if (previous == null) {
+        bypassed.remove();
+      } else {
+        bypassed.set(previous);
+      }
+    };
+  }
+
+  @Override
+  public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+      throws IOException {
+    if (!HttpMethod.GET.equals(request.getMethod()) || bypassed.get() != null || bypassesCache(request.getHeaders())) {
+      return execution.execute(request, body);
+    }
+
+    String key = cacheKey(request);
+    ResponseCache.Entry cached = cache.get(key);
+    Instant requestTime = clock.instant();
+    if (cached == null) {
+      return store(key, requestTime, execution.execute(request, body));
+    }
+
+    Directives responseDirectives = Directives.of(cached.headers());
+    Directives requestDirectives = Directives.of(request.getHeaders());
+    Duration age = cached.currentAge(requestTime);
+    Duration lifetime = freshnessLifetime(cached, responseDirectives);
+    boolean mustValidate = responseDirectives.has("no-cache") || requestDirectives.has("no-cache")
+        || age.getSeconds() > requestDirectives.seconds("max-age", Long.MAX_VALUE);
+
+    if (!mustValidate && age.compareTo(lifetime) < 0) {
+      return toResponse(cached, age, true);
+    }
+    long staleWhileRevalidate = responseDirectives.seconds("stale-while-revalidate", 0);
+    if (!mustValidate && !responseDirectives.has("must-revalidate") && !responseDirectives.has("proxy-revalidate")
+        && age.compareTo(lifetime.plusSeconds(staleWhileRevalidate)) < 0) {
+      revalidateInBackground(key, request, cached);
+      return toResponse(cached, age, true);
+    }
+
+    HttpHeaders conditional = conditionalHeaders(request.getHeaders(), cached);
+    ClientHttpResponse response = execution.execute(new HttpRequestWrapper(request) {
+      @Override
+      public HttpHeaders getHeaders() {
+        return conditional;
+      }
+    }, body);
+    return handleValidationResponse(key, cached, requestTime, response);
+  }
+
+  int entryCount() {
+    return cache.entryCount();
+  }
+
+  /**
+   * All cached responses, least recently used first.
+   */
+  Map<String, ResponseCache.Entry> entries() {
+    return cache.entries();
+  }
+
+  /**
+   * Puts back a response saved before a restart if it can still be used: fresh, within stale-while-revalidate, or
+   * carrying a validator so that a conditional request can confirm it. Responses cached since the restart win.
+   */
+  boolean restore(String key, ResponseCache.Entry entry) {
+    Directives directives = Directives.of(entry.headers());
+    Duration usable = freshnessLifetime(entry, directives)
+        .plusSeconds(directives.seconds("stale-while-revalidate", 0));
+    boolean hasValidator = entry.headers().containsKey(HttpHeaders.ETAG)
+        || entry.headers().containsKey(HttpHeaders.LAST_MODIFIED);
+    if (!hasValidator && entry.currentAge(clock.instant()).compareTo(usable) >= 0) {
+      return false;
+    }
+    return cache.putIfAbsent(key, entry);
+  }
+
+  private ClientHttpResponse handleValidationResponse(String key, ResponseCache.Entry cached, Instant requestTime,
+                                                      ClientHttpResponse response) throws IOException {
+    if (response.getStatusCode().value() != 304) {
+      // The old entry is superseded either way; if the new response cannot be stored, nothing may be served.
+      cache.remove(key);
+      return store(key, requestTime, response);
+    }
+    response.close();
+    HttpHeaders merged = new HttpHeaders();
+    merged.putAll(cached.headers());
+    response.getHeaders().forEach((name, values) -> {
+      if (!NOT_UPDATED_ON_REVALIDATION.contains(name.toLowerCase(Locale.ROOT))) {
+        merged.put(name, values);
+      }
+    });
+    ResponseCache.Entry updated = new ResponseCache.Entry(cached.status(), cached.statusText(), merged, cached.body(),
+        requestTime, clock.instant());
+    cache.put(key, updated);
+    return toResponse(updated, Duration.ZERO, false);
+  }
+
+  private void revalidateInBackground(String key, HttpRequest request, ResponseCache.Entry cached) {
+    if (!revalidating.add(key)) {
+      return;
+    }
+    URI uri = request.getURI();
+    HttpHeaders headers = conditionalHeaders(request.getHeaders(), cached);
+    try {
+      revalidationExecutor.execute(() -> {
+        try (Deadline.Scope ignored = Deadline.after(revalidation.timeout()).activate()) {
+          if (!revalidation.urlPolicy().test(uri)) {
+            cache.remove(key);
+            log.debug("Dropped cached response that no longer passes URL validation uri={}", uri);
+            return;
+          }
+          try (HostCircuitBreakers.Permit permit = revalidation.circuitBreakers().acquire(uri.getHost())) {
+            Instant requestTime = clock.instant();
+            ClientHttpRequest refresh = requestFactory.createRequest(uri, HttpMethod.GET);
+            refresh.getHeaders().putAll(headers);
+            ClientHttpResponse response = refresh.execute();
+            permit.recordResponse(response.getStatusCode().value());
+            handleValidationResponse(key, cached, requestTime, response).close();
+          }
+        } catch (IOException | RuntimeException e) {
+          log.debug("Background revalidation failed uri={}: {}", uri, e.toString());
+        } finally {
+          revalidating.remove(key);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      revalidating.remove(key);
+    }
+  }
+
+  /**
+   * Stores the response if it is cacheable and small enough. The returned response must be used in place of the
+   * one passed in, whose body may have been consumed.
+   */
+  private ClientHttpResponse store(String key, Instant requestTime, ClientHttpResponse response) throws IOException {
+    if (!isStorable(response) || response.getHeaders().getContentLength() > maxEntrySize) {
+      return response;
+    }
+    InputStream in = response.getBody();
+    byte[] prefix = in.readNBytes(maxEntrySize + 1);
+    if (prefix.length > maxEntrySize) {
+      return new ReplayingResponse(response, new SequenceInputStream(new ByteArrayInputStream(prefix), in));
+    }
+    HttpHeaders headers = new HttpHeaders();
+    headers.putAll(response.getHeaders());
+    ResponseCache.Entry entry = new ResponseCache.Entry(response.getStatusCode().value(), response.getStatusText(),
+        headers, prefix, requestTime, clock.instant());
+    response.close();
+    cache.put(key, entry);
+    return toResponse(entry, Duration.ZERO, false);
+  }
+
+  private static boolean isStorable(ClientHttpResponse response) throws IOException {
+    int status = response.getStatusCode().value();
+    if (status == 206 || status == 304) {
+      return false;
+    }
+    HttpHeaders headers = response.getHeaders();
+    Directives directives = Directives.of(headers);
+    if (directives.has("no-store") || directives.has("private") || headers.getOrEmpty(HttpHeaders.VARY).contains("*")) {
+      return false;
+    }
+    return CACHEABLE_BY_DEFAULT.contains(status) || directives.has("public") || directives.has("max-age")
+        || directives.has("s-maxage") || headers.containsKey(HttpHeaders.EXPIRES);
+  }
+
+  private static Duration freshnessLifetime(ResponseCache.Entry entry, Directives directives) {
+    if (directives.has("s-maxage")) {
+      return Duration.ofSeconds(directives.seconds("s-maxage", 0));
+    }
+    if (directives.has("max-age")) {
+      return Duration.ofSeconds(directives.seconds("max-age", 0));
+    }
+    HttpHeaders headers = entry.headers();
+    Instant date = parseDate(headers.getFirst(HttpHeaders.DATE), entry.responseTime());
+    if (headers.containsKey(HttpHeaders.EXPIRES)) {
+      // An invalid Expires value means "already expired".
+      Instant expires = parseDate(headers.getFirst(HttpHeaders.EXPIRES), Instant.EPOCH);
+      return expires.isAfter(date) ? Duration.between(date, expires) : Duration.ZERO;
+    }
+    String lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+    if (lastModified != null && CACHEABLE_BY_DEFAULT.contains(entry.status())) {
+      Instant modified = parseDate(lastModified, date);
+      Duration heuristic = Duration.between(modified, date).dividedBy(10);
+      return heuristic.isNegative() ? Duration.ZERO : min(heuristic, MAX_HEURISTIC_LIFETIME);
+    }
+    return Duration.ZERO;
+  }
+
+  private static HttpHeaders conditionalHeaders(HttpHeaders requestHeaders, ResponseCache.Entry cached) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.putAll(requestHeaders);
+    String etag = cached.headers().getFirst(HttpHeaders.ETAG);
+    String lastModified = cached.headers().getFirst(HttpHeaders.LAST_MODIFIED);
+    if (etag != null) {
+      headers.set(HttpHeaders.IF_NONE_MATCH, etag);
+    }
+    if (lastModified != null) {
+      headers.set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+    }
+    return headers;
+  }
+
+  private static boolean bypassesCache(HttpHeaders headers) {
+    // Requests that carry credentials, ask for part of a resource or bring their own validators are passed through.
+    return headers.containsKey(HttpHeaders.AUTHORIZATION)
+        || headers.containsKey(HttpHeaders.RANGE)
+        || headers.containsKey(HttpHeaders.IF_NONE_MATCH)
+        || headers.containsKey(HttpHeaders.IF_MODIFIED_SINCE)
+        || Directives.of(headers).has("no-store");
+  }
+
+  /**
+   * Method, URI and a SHA-256 digest of the request headers. Requests still only share an entry when all their
+   * headers match, but caller credentials such as Cookie or X-Api-Key are neither held in memory nor written to the
+   * warm-state snapshot.
+   */
+  static String cacheKey(HttpRequest request) {
+    Map<String, List<String>> headers = new TreeMap<>();
+    request.getHeaders().forEach((name, values) -> headers.put(name.toLowerCase(Locale.ROOT), values));
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256")
+          .digest(headers.toString().getBytes(StandardCharsets.UTF_8));
+      return request.getMethod() + " " + request.getURI() + " " + HexFormat.of().formatHex(digest);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  /**
+   * Whether the response was served from the cache without contacting the origin. Responses confirmed by a
+   * conditional request, or just fetched and stored, are not hits.
+   */
+  public static boolean isCacheHit(ClientHttpResponse response) {
+    return response instanceof CachedResponse cachedResponse && cachedResponse.hit;
+  }
+
+  private static ClientHttpResponse toResponse(ResponseCache.Entry entry, Duration age, boolean hit) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.putAll(entry.headers());
+    headers.set(HttpHeaders.AGE, Long.toString(age.getSeconds()));
+    return new CachedResponse(entry, headers, hit);
+  }
+
+  static Instant parseDate(String value, Instant fallback) {
+    if (value == null) {
+      return fallback;
+    }
+    try {
+      return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+    } catch (DateTimeParseException e) {
+      return fallback;
+    }
+  }
+
+  private static Duration min(Duration a, Duration b) {
+    return a.compareTo(b) <= 0 ? a : b;
+  }
+
+  /**
+   * How background revalidations are admitted.
+   *
+   * @param urlPolicy the URL validation a caller's request goes through; false means the URI may not be fetched
+   * @param circuitBreakers the breakers and bulkheads a caller's request goes through
+   * @param timeout deadline for the whole refresh, URL validation included
+   */
+  public record Revalidation(Predicate<URI> urlPolicy, HostCircuitBreakers circuitBreakers, Duration timeout) {
+  }
+
+  @FunctionalInterface
+  public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  /**
+   * Parsed Cache-Control directives; names are lower-cased and quotes are stripped from values.
+   */
+  private record Directives(Map<String, String> values) {
+
+    static Directives of(HttpHeaders headers) {
+      Map<String, String> values = new HashMap<>();
+      for (String header : headers.getOrEmpty(HttpHeaders.CACHE_CONTROL)) {
+        for (String part : header.split(",")) {
+          String directive = part.trim();
+          if (directive.isEmpty()) {
+            continue;
+          }
+          int eq = directive.indexOf('=');
+          String name = (eq < 0 ? directive : directive.substring(0, eq)).trim().toLowerCase(Locale.ROOT);
+          String value = eq < 0 ? "" : directive.substring(eq + 1).trim().replace("\"", "");
+          values.putIfAbsent(name, value);
+        }
+      }
+      return new Directives(values);
+    }
+
+    boolean has(String name) {
+      return values.containsKey(name);
+    }
+
+    /**
+     * Returns the directive as a number of seconds, the fallback if it is absent, or 0 if it is malformed.
+     */
+    long seconds(String name, long fallback) {
+      String value = values.get(name);
+      if (value == null) {
+        return fallback;
+      }
+      try {
+        return Math.max(0, Long.parseLong(value));
+      } catch (NumberFormatException e) {
+        return 0;
+      }
+    }
+  }
+
+  private static final class CachedResponse implements ClientHttpResponse {
+    private final ResponseCache.Entry entry;
+    private final HttpHeaders headers;
+    private final boolean hit;
+
+    CachedResponse(ResponseCache.Entry entry, HttpHeaders headers, boolean hit) {
+      this.entry = entry;
+      this.headers = headers;
+      this.hit = hit;
+    }
+
+    @Override
+    public HttpStatusCode getStatusCode() {
+      return HttpStatusCode.valueOf(entry.status());
+    }
+
+    @Override
+    public String getStatusText() {
+      return entry.statusText();
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return headers;
+    }
+
+    @Override
+    public InputStream getBody() {
+      return new ByteArrayInputStream(entry.body());
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  /**
+   * Hands out a body that was partly read while checking its size, followed by the rest of the stream.
+   */
+  private static final class ReplayingResponse implements ClientHttpResponse {
+    private final ClientHttpResponse delegate;
+    private final InputStream body;
+
+    ReplayingResponse(ClientHttpResponse delegate, InputStream body) {
+      this.delegate = delegate;
+      this.body = body;
+    }
+
+    @Override
+    public HttpStatusCode getStatusCode() throws IOException {
+      return delegate.getStatusCode();
+    }
+
+    @Override
+    public String getStatusText() throws IOException {
+      return delegate.getStatusText();
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return delegate.getHeaders();
+    }
+
+    @Override
+    public InputStream getBody() {
+      return body;
+    }
+
+    @Override
+    public void close() {
+      delegate.close();
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package com.datadoghq.workshops.samplejavaapp.outbound;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker for a single destination.
+ *
+ * While CLOSED the outcomes of the last slidingWindowSize calls are kept; once at least minimumCalls are recorded
+ * and either the failure rate or the slow-call rate reaches its threshold, the breaker OPENs and rejects calls for
+ * waitInOpen. It then goes HALF_OPEN and admits permittedCallsInHalfOpen trial calls, whose outcomes decide whether
+ * it closes again or reopens.
+ *
+ * Every admitted call is tagged with the generation it was admitted in, so a slow call that started before a state
+ * change cannot skew the window of the new state.
+ */
+final class CircuitBreaker {
+
+  enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  record Settings(float failureRateThreshold, float slowCallRateThreshold, Duration slowCallDuration,
+                  int slidingWindowSize, int minimumCalls, Duration waitInOpen, int permittedCallsInHalfOpen) {
+  }
+
+  record Snapshot(State state, float failureRate, float slowCallRate, int bufferedCalls) {
+  }
+
+  static final long REJECTED = -1;
+
+  private final Settings settings;
+  private final LongSupplier nanoClock;
+
+  // Guarded by this.
+  private State state = State.CLOSED;
+  private long generation;
+  private long openedAt;
+  private int trialCallsAdmitted;
+  private final boolean[] failed;
+  private final boolean[] slow;
+  private int size;
+  private int next;
+  private int failures;
+  private int slowCalls;
+
+  CircuitBreaker(Settings settings, LongSupplier nanoClock) {
+    this.settings = settings;
+    this.nanoClock = nanoClock;
+    this.failed = new boolean[settings.slidingWindowSize()];
+    this.slow = new boolean[settings.slidingWindowSize()];
+  }
+
+  /**
+   * Returns the generation to pass to {@link #onResult}, or {@link #REJECTED} if the call must not be made.
+   */
+  synchronized long tryAcquire() {
+    if (state == State.OPEN) {
+      if (nanoClock.getAsLong() - openedAt < settings.waitInOpen().toNanos()) {
+        return REJECTED;
+      }
+      transitionTo(State.HALF_OPEN);
+    }
+    if (state == State.HALF_OPEN) {
+      if (trialCallsAdmitted >= settings.permittedCallsInHalfOpen()) {
+        return REJECTED;
+      }
+      trialCallsAdmitted++;
+    }
+    return generation;
+  }
+
+  synchronized void onResult(long callGeneration, boolean failure, long elapsedNanos) {
+    if (callGeneration != generation || state == State.OPEN) {
+      return;
+    }
+    record(failure, elapsedNanos >= settings.slowCallDuration().toNanos());
+
+    if (state == State.HALF_OPEN) {
+      if (size >= settings.permittedCallsInHalfOpen()) {
+        transitionTo(exceedsThresholds() ? State.OPEN : State.CLOSED);
+      }
+    } else if (size >= settings.minimumCalls() && exceedsThresholds()) {
+      transitionTo(State.OPEN);
+    }
+  }
+
+  /**
+   * Hands back an admission that never turned into a call, so a half-open breaker can admit another trial.
+   */
+  synchronized void cancel(long callGeneration) {
+    if (callGeneration == generation && state == State.HALF_OPEN && trialCallsAdmitted > 0) {
+      trialCallsAdmitted--;
+    }
+  }
+
+  synchronized Snapshot snapshot() {
+    return new Snapshot(state, rate(failures), rate(slowCalls), size);
+  }
+
+  private void record(boolean failure, boolean slowCall) {
+    if (size == failed.length) {
+      failures -= failed[next] ? 1 : 0;
+      slowCalls -= slow[next] ? 1 : 0;
+    } else {
+      size++;
+    }
+    failed[next] = failure;
+    slow[next] = slowCall;
+    failures += failure ? 1 : 0;
+    slowCalls += slowCall ? 1 : 0;
+    next = (next + 1) % failed.length;
+  }
+
+  private boolean exceedsThresholds() {
+    return rate(failures) >= settings.failureRateThreshold() || rate(slowCalls) >= settings.slowCallRateThreshold();
+  }
+
+  private float rate(int count) {
+    return size == 0 ? 0 : count * 100f / size;
+  }
+
+  private void transitionTo(State target) {
+    state = target;
+    generation++;
+    trialCallsAdmitted = 0;
+    size = 0;
+    next = 0;
+    failures = 0;
+    slowCalls = 0;
+    if (target == State.OPEN) {
+      openedAt = nanoClock.getAsLong();
+    }
+  }
+}
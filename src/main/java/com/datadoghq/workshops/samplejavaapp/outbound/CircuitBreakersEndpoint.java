@@ -0,0 +1,26 @@
+package com.datadoghq.workshops.samplejavaapp.outbound;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Exposes per-host breaker state and bulkhead usage at /actuator/circuitbreakers.
+ */
+@Component
+@Endpoint(id = "circuitbreakers")
+public class CircuitBreakersEndpoint {
+
+  private final HostCircuitBreakers breakers;
+
+  public CircuitBreakersEndpoint(HostCircuitBreakers breakers) {
+    this.breakers = breakers;
+  }
+
+  @ReadOperation
+  public Map<String, HostCircuitBreakers.HostState> circuitBreakers() {
+    return breakers.states();
+  }
+}
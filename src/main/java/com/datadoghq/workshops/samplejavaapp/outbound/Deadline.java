@@ -0,0 +1,119 @@
+package com.datadoghq.workshops.samplejavaapp.outbound;
+
+import com.datadoghq.workshops.samplejavaapp.exception.DeadlineExceededException;
+import com.datadoghq.workshops.samplejavaapp.exception.DeadlineExceededException.Stage;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * End-to-end time budget of one request, measured with {@link System#nanoTime()}.
+ *
+ * Every stage (DNS during URL validation, pool lease, connect, read, ping) takes its own configured timeout capped
+ * by {@link #cap(Duration) what is left}, so the stages share one budget instead of adding up. Like
+ * {@link PhaseTimings}, a deadline is {@link #activate() activated} on the thread doing the work, which lets code
+ * deep in the stack (the DNS resolver, the pooled client's request config) honour it without extra parameters.
+ */
+public final class Deadline {
+
+  private static final ThreadLocal<Deadline> current = new ThreadLocal<>();
+
+  private static final Deadline UNBOUNDED = new Deadline(Long.MAX_VALUE, System::nanoTime, false);
+
+  private final long expiresAt;
+  private final LongSupplier nanoClock;
+  private final boolean bounded;
+
+  private Deadline(long expiresAt, LongSupplier nanoClock, boolean bounded) {
+    this.expiresAt = expiresAt;
+    this.nanoClock = nanoClock;
+    this.bounded = bounded;
+  }
+
+  public static Deadline after(Duration budget) {
+    return after(budget, System::nanoTime);
+  }
+
+  static Deadline after(Duration budget, LongSupplier nanoClock) {
+    return new Deadline(nanoClock.getAsLong() + budget.toNanos(), nanoClock, true);
+  }
+
+  /**
+   * A deadline that never expires, for callers that have no budget of their own; stages keep their configured
+   * timeouts.
+   */
+  public static Deadline unbounded() {
+    return UNBOUNDED;
+  }
+
+  /**
+   * The deadline active on the calling thread, or {@link #unbounded()} if there is none.
+   */
+  public static Deadline current() {
+    Deadline deadline = current.get();
+    return deadline == null ? UNBOUNDED : deadline;
+  }
+
+  /**
+   * Makes this deadline the one returned by {@link #current()} on the calling thread until the scope is closed.
+   */
+  public Scope activate() {
+    Deadline previous = current.get();
+    current.set(this);
+    return () -> {
+      if (previous == null) {
+        current.remove();
+      } else {
+        current.set(previous);
+      }
+    };
+  }
+
+  /**
+   * Time left, never negative.
+   */
+  public Duration remaining() {
+    if (!bounded) {
+      return Duration.ofNanos(Long.MAX_VALUE);
+    }
+    return Duration.ofNanos(Math.max(0, expiresAt - nanoClock.getAsLong()));
+  }
+
+  public boolean isExpired() {
+    return bounded && expiresAt - nanoClock.getAsLong() <= 0;
+  }
+
+  /**
+   * The stage timeout, shortened to the time left if that is less. Never returns zero, which most clients read as
+   * "no timeout"; an expired deadline should be caught by {@link #check} before the stage starts.
+   */
+  public Duration cap(Duration timeout) {
+    if (!bounded) {
+      return timeout;
+    }
+    Duration remaining = remaining();
+    if (remaining.compareTo(timeout) >= 0) {
+      return timeout;
+    }
+    return remaining.toMillis() < 1 ? Duration.ofMillis(1) : remaining;
+  }
+
+  /**
+   * Fails fast if the budget is already spent before the stage starts.
+   */
+  public void check(Stage stage) {
+    if (isExpired()) {
+      throw exceeded(stage, null);
+    }
+  }
+
+  public DeadlineExceededException exceeded(Stage stage, Throwable cause) {
+    return new DeadlineExceededException(stage, "Request deadline exceeded during " + stage, cause);
+  }
+
+  @FunctionalInterface
+  public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+}
@@ -0,0 +1,108 @@
+package com.datadoghq.workshops.samplejavaapp.outbound;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Races TCP connects across several addresses of one host, RFC 8305 style.
+ *
+ * Attempts start in the given order, one attemptDelay apart or as soon as the previous attempt fails, and the
+ * first socket to connect wins; every other attempt is closed. A dead address or a broken IPv6 path therefore
+ * costs one attempt delay rather than the whole connect timeout.
+ */
+final class HappyEyeballsConnector {
+
+  private final Duration attemptDelay;
+
+  HappyEyeballsConnector(Duration attemptDelay) {
+    this.attemptDelay = attemptDelay;
+  }
+
+  /**
+   * Connects to one of the addresses within the timeout (0 means none) and returns the connected socket.
+   */
+  Socket connect(List<InetAddress> addresses, int port, InetSocketAddress localAddress, Duration timeout,
+                 Supplier<Socket> socketFactory) throws IOException {
+    long deadline = timeout.isZero() ? Long.MAX_VALUE : System.nanoTime() + timeout.toNanos();
+    LinkedBlockingQueue<Attempt> results = new LinkedBlockingQueue<>();
+    List<Socket> sockets = new ArrayList<>(addresses.size());
+    int started = 0;
+    int failed = 0;
+    Socket winner = null;
+    try {
+      sockets.add(start(socketFactory.get(), new InetSocketAddress(addresses.get(started++), port), localAddress,
+          deadline, results));
+      while (winner == null) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          throw new SocketTimeoutException("Connect timed out after " + timeout.toMillis() + " ms");
+        }
+        long wait = started < addresses.size() ? Math.min(remaining, attemptDelay.toNanos()) : remaining;
+        Attempt attempt = results.poll(wait, TimeUnit.NANOSECONDS);
+        if (attempt != null && attempt.failure == null) {
+          winner = attempt.socket;
+          continue;
+        }
+        if (attempt != null && ++failed == addresses.size()) {
+          throw attempt.failure;
+        }
+        // Either the attempt delay ran out or an attempt failed: start the next address, if any.
+        if (started < addresses.size()) {
+          sockets.add(start(socketFactory.get(), new InetSocketAddress(addresses.get(started++), port),
+              localAddress, deadline, results));
+        }
+      }
+      return winner;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while connecting", e);
+    } finally {
+      for (Socket socket : sockets) {
+        if (socket != winner) {
+          closeQuietly(socket);
+        }
+      }
+    }
+  }
+
+  private static Socket start(Socket socket, InetSocketAddress target, InetSocketAddress localAddress, long deadline,
+                              LinkedBlockingQueue<Attempt> results) {
+    Thread.ofVirtual().name("connect-" + target.getAddress().getHostAddress()).start(() -> {
+      try {
+        if (localAddress != null) {
+          socket.bind(localAddress);
+        }
+        long remainingMillis = deadline == Long.MAX_VALUE ? 0 : TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (deadline != Long.MAX_VALUE && remainingMillis <= 0) {
+          throw new SocketTimeoutException("Connect timed out");
+        }
+        socket.connect(target, (int) Math.min(Integer.MAX_VALUE, remainingMillis));
+        results.add(new Attempt(socket, null));
+      } catch (IOException e) {
+        closeQuietly(socket);
+        results.add(new Attempt(socket, e));
+      }
+    });
+    return socket;
+  }
+
+  private static void closeQuietly(Socket socket) {
+    try {
+      socket.close();
+    } catch (IOException ignored) {
+      // Nothing to do for a socket that lost the race.
+    }
+  }
+
+  private record Attempt(Socket socket, IOException failure) {
+  }
+}
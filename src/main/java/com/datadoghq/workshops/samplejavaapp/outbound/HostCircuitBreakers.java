@@ -0,0 +1,215 @@
+package com.datadoghq.workshops.samplejavaapp.outbound;
+
+import com.datadoghq.workshops.samplejavaapp.config.OutboundHttpProperties;
+import com.datadoghq.workshops.samplejavaapp.exception.HostUnavailableException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-host circuit breaker and bulkhead for outbound calls.
+ *
+ * A call first has to get past the host's breaker, then take one of its bulkhead slots; both checks are
+ * non-blocking, so calls to a failing or saturated host are refused right away instead of waiting out the
+ * connect and read timeouts.
+ *
+ * Every subdomain of a whitelisted domain gets its own entry, so the hosts are not bounded by the whitelist. Once
+ * there are more than max-hosts, the least recently used hosts with nothing in flight and a closed breaker are
+ * forgotten; hosts whose breaker is open or half-open are kept until it closes again.
+ */
+@Component
+public class HostCircuitBreakers {
+
+  private final CircuitBreaker.Settings settings;
+  private final int maxConcurrentCallsPerHost;
+  private final int maxHosts;
+  private final LongSupplier nanoClock;
+  private final Map<String, Host> hosts = new ConcurrentHashMap<>();
+  private final AtomicBoolean evicting = new AtomicBoolean();
+
+  @Autowired
+  public HostCircuitBreakers(OutboundHttpProperties props) {
+    this(props, System::nanoTime);
+  }
+
+  HostCircuitBreakers(OutboundHttpProperties props, LongSupplier nanoClock) {
+    OutboundHttpProperties.CircuitBreaker cb = props.getCircuitBreaker();
+    this.settings = new CircuitBreaker.Settings(
+        cb.getFailureRateThreshold(),
+        cb.getSlowCallRateThreshold(),
+        cb.getSlowCallDuration(),
+        cb.getSlidingWindowSize(),
+        cb.getMinimumCalls(),
+        cb.getWaitInOpen(),
+        cb.getPermittedCallsInHalfOpen());
+    this.maxConcurrentCallsPerHost = props.getBulkhead().getMaxConcurrentCallsPerHost();
+    this.maxHosts = cb.getMaxHosts();
+    this.nanoClock = nanoClock;
+  }
+
+  /**
+   * Admits a call to the host, or throws if its breaker is open or its bulkhead is full. The returned permit must
+   * be closed once the call is over; a permit closed without a recorded outcome counts as a failure.
+   */
+  public Permit acquire(String host) {
+    String key = normalize(host);
+    while (true) {
+      Host entry = hosts.computeIfAbsent(key,
+          h -> new Host(new CircuitBreaker(settings, nanoClock), new Semaphore(maxConcurrentCallsPerHost)));
+      entry.lastUsed = nanoClock.getAsLong();
+      if (hosts.size() > maxHosts) {
+        evictIdleHosts(key);
+      }
+      long generation = entry.breaker.tryAcquire();
+      if (generation == CircuitBreaker.REJECTED) {
+        throw new HostUnavailableException(HostUnavailableException.Reason.CIRCUIT_OPEN, "Host temporarily unavailable");
+      }
+      if (!entry.bulkhead.tryAcquire()) {
+        // A full bulkhead says nothing about the host's health, so the admission is handed back unrecorded.
+        entry.breaker.cancel(generation);
+        if (entry.isRetired()) {
+          continue;
+        }
+        throw new HostUnavailableException(HostUnavailableException.Reason.BULKHEAD_FULL, "Host temporarily unavailable");
+      }
+      return new Permit(entry, generation, nanoClock.getAsLong());
+    }
+  }
+
+  /**
+   * Current breaker and bulkhead state per host, sorted by host name.
+   */
+  public Map<String, HostState> states() {
+    Map<String, HostState> states = new TreeMap<>();
+    hosts.forEach((host, entry) -> {
+      CircuitBreaker.Snapshot snapshot = entry.breaker.snapshot();
+      states.put(host, new HostState(snapshot.state().name(), snapshot.failureRate(), snapshot.slowCallRate(),
+          snapshot.bufferedCalls(), maxConcurrentCallsPerHost - entry.bulkhead.availablePermits()));
+    });
+    return states;
+  }
+
+  int hostCount() {
+    return hosts.size();
+  }
+
+  /**
+   * Forgets idle hosts with a closed breaker, least recently used first, until a tenth of max-hosts is free again,
+   * so the sweep runs once per that many new hosts rather than on every one. One thread sweeps at a time; the host
+   * it is acquiring for is spared.
+   */
+  private void evictIdleHosts(String acquiring) {
+    if (!evicting.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      List<Map.Entry<String, Host>> candidates = new ArrayList<>(hosts.entrySet());
+      candidates.sort(Comparator.comparingLong(candidate -> candidate.getValue().lastUsed));
+      int target = maxHosts - maxHosts / 10;
+      for (Map.Entry<String, Host> candidate : candidates) {
+        if (hosts.size() <= target) {
+          break;
+        }
+        if (!candidate.getKey().equals(acquiring) && candidate.getValue().retireIfIdle(maxConcurrentCallsPerHost)) {
+          hosts.remove(candidate.getKey(), candidate.getValue());
+        }
+      }
+    } finally {
+      evicting.set(false);
+    }
+  }
+
+  private static String normalize(String host) {
+    return host == null ? "" : host.toLowerCase(Locale.ROOT);
+  }
+
+  public record HostState(String state, float failureRate, float slowCallRate, int bufferedCalls, int inFlight) {
+  }
+
+  private static final class Host {
+    final CircuitBreaker breaker;
+    final Semaphore bulkhead;
+    volatile long lastUsed;
+    // Guarded by this.
+    private boolean retired;
+
+    Host(CircuitBreaker breaker, Semaphore bulkhead) {
+      this.breaker = breaker;
+      this.bulkhead = bulkhead;
+    }
+
+    /**
+     * Takes every bulkhead slot for good if none is in use and the breaker is closed. A caller that finds the
+     * bulkhead full then sees the entry retired and starts over with a fresh one, rather than being rejected.
+     */
+    synchronized boolean retireIfIdle(int slots) {
+      if (breaker.snapshot().state() != CircuitBreaker.State.CLOSED || !bulkhead.tryAcquire(slots)) {
+        return false;
+      }
+      retired = true;
+      return true;
+    }
+
+    synchronized boolean isRetired() {
+      return retired;
+    }
+  }
+
+  public final class Permit implements AutoCloseable {
+    private final Host host;
+    private final long generation;
+    private final long startNanos;
+    private final AtomicBoolean recorded = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private Permit(Host host, long generation, long startNanos) {
+      this.host = host;
+      this.generation = generation;
+      this.startNanos = startNanos;
+    }
+
+    /**
+     * Records the outcome once the response headers are in; 5xx responses count as failures.
+     */
+    public void recordResponse(int status) {
+      record(status >= 500);
+    }
+
+    public void recordFailure() {
+      record(true);
+    }
+
+    /**
+     * Hands the admission back without an outcome, for calls cut short by the caller rather than by the host.
+     */
+    public void recordAbandoned() {
+      if (recorded.compareAndSet(false, true)) {
+        host.breaker.cancel(generation);
+      }
+    }
+
+    @Override
+    public void close() {
+      if (closed.compareAndSet(false, true)) {
+        record(true);
+        host.bulkhead.release();
+      }
+    }
+
+    private void record(boolean failure) {
+      if (recorded.compareAndSet(false, true)) {
+        host.breaker.onResult(generation, failure, nanoClock.getAsLong() - startNanos);
+      }
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package com.datadoghq.workshops.samplejavaapp.outbound;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Non-blocking admission control with a global cap on requests in flight and a smaller cap per destination host.
+ *
+ * {@link #acquire(String)} never blocks: it returns a future that completes with a release handle once both caps
+ * have room. Waiters are served in arrival order, skipping those whose host is still at its cap so one busy host
+ * doesn't stall the others. At most maxWaiting requests wait; beyond that {@link #acquire(String)} fails right away.
+ */
+public final class HostConcurrencyLimiter {
+
+  private final int maxTotal;
+  private final int maxPerHost;
+  private final int maxWaiting;
+
+  // Guarded by this.
+  private int inFlight;
+  private final Map<String, Integer> inFlightByHost = new HashMap<>();
+  private final Deque<Waiter> waiters = new ArrayDeque<>();
+
+  public HostConcurrencyLimiter(int maxTotal, int maxPerHost, int maxWaiting) {
+    if (maxTotal < 1 || maxPerHost < 1 || maxWaiting < 0) {
+      throw new IllegalArgumentException("Concurrency limits must be positive");
+    }
+    this.maxTotal = maxTotal;
+    this.maxPerHost = maxPerHost;
+    this.maxWaiting = maxWaiting;
+  }
+
+  /**
+   * Returns a future completing with a handle to run when the request finishes; running it again is a no-op. The
+   * future fails with a {@link RejectedExecutionException} if maxWaiting requests are already waiting. Cancelling
+   * it while it waits gives up its place in the queue.
+   */
+  public CompletableFuture<Runnable> acquire(String host) {
+    CompletableFuture<Runnable> permit = new CompletableFuture<>();
+    Waiter waiter = new Waiter(host, permit);
+    boolean granted;
+    synchronized (this) {
+      granted = tryTake(host);
+      if (!granted) {
+        if (waiters.size() >= maxWaiting) {
+          return CompletableFuture.failedFuture(new RejectedExecutionException("Too many requests waiting"));
+        }
+        waiters.add(waiter);
+      }
+    }
+    // Complete outside the lock; dependent stages run on this thread.
+    if (granted) {
+      permit.complete(releaser(host));
+    } else {
+      permit.whenComplete((release, e) -> {
+        if (e != null) {
+          giveUp(waiter);
+        }
+      });
+    }
+    return permit;
+  }
+
+  public synchronized int inFlight() {
+    return inFlight;
+  }
+
+  public synchronized int waiting() {
+    return waiters.size();
+  }
+
+  private Runnable releaser(String host) {
+    AtomicBoolean released = new AtomicBoolean();
+    return () -> {
+      if (released.compareAndSet(false, true)) {
+        release(host);
+      }
+    };
+  }
+
+  private void release(String host) {
+    List<Waiter> ready = new ArrayList<>();
+    synchronized (this) {
+      inFlight--;
+      inFlightByHost.computeIfPresent(host, (h, n) -> n == 1 ? null : n - 1);
+      Iterator<Waiter> it = waiters.iterator();
+      while (it.hasNext() && inFlight < maxTotal) {
+        Waiter waiter = it.next();
+        if (tryTake(waiter.host)) {
+          it.remove();
+          ready.add(waiter);
+        }
+      }
+    }
+    for (Waiter waiter : ready) {
+      Runnable release = releaser(waiter.host);
+      // Cancelled after it was picked; hand the permit straight back.
+      if (!waiter.permit.complete(release)) {
+        release.run();
+      }
+    }
+  }
+
+  private synchronized void giveUp(Waiter waiter) {
+    waiters.remove(waiter);
+  }
+
+  // Caller holds the lock.
+  private boolean tryTake(String host) {
+    if (inFlight >= maxTotal || inFlightByHost.getOrDefault(host, 0) >= maxPerHost) {
+      return false;
+    }
+    inFlight++;
+    inFlightByHost.merge(host, 1, Integer::sum);
+    return true;
+  }
+
+  private record Waiter(String host, CompletableFuture<Runnable> permit) {
+  }
+}
@@ -0,0 +1,145 @@
+package com.datadoghq.workshops.samplejavaapp.outbound;
+
+import org.apache.hc.client5.http.socket.ConnectionSocketFactory;
+import org.apache.hc.client5.http.socket.LayeredConnectionSocketFactory;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.TimeValue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Counts the connections (and, for TLS, the handshakes) opened by the wrapped socket factory and reports how long
+ * the TCP connect and the handshake took to the active {@link PhaseTimings}. The pool only calls into the factory
+ * when it has no reusable connection for the route.
+ *
+ * When a host has more than one vetted address, the TCP connect is raced across all of them with
+ * {@link HappyEyeballsConnector} and the TLS handshake runs on the winning socket.
+ */
+final class MeteredConnectionSocketFactory implements LayeredConnectionSocketFactory {
+
+  private final ConnectionSocketFactory delegate;
+  private final OutboundConnectionMetrics metrics;
+  private final VettedAddresses vettedAddresses;
+  private final HappyEyeballsConnector connector;
+  private final boolean tls;
+
+  private MeteredConnectionSocketFactory(ConnectionSocketFactory delegate, OutboundConnectionMetrics metrics,
+                                         VettedAddresses vettedAddresses, HappyEyeballsConnector connector, boolean tls) {
+    this.delegate = delegate;
+    this.metrics = metrics;
+    this.vettedAddresses = vettedAddresses;
+    this.connector = connector;
+    this.tls = tls;
+  }
+
+  static ConnectionSocketFactory plain(ConnectionSocketFactory delegate, OutboundConnectionMetrics metrics,
+                                       VettedAddresses vettedAddresses, HappyEyeballsConnector connector) {
+    return new MeteredConnectionSocketFactory(delegate, metrics, vettedAddresses, connector, false);
+  }
+
+  static LayeredConnectionSocketFactory tls(LayeredConnectionSocketFactory delegate, OutboundConnectionMetrics metrics,
+                                            VettedAddresses vettedAddresses, HappyEyeballsConnector connector) {
+    return new MeteredConnectionSocketFactory(delegate, metrics, vettedAddresses, connector, true);
+  }
+
+  @Override
+  public Socket createSocket(HttpContext context) {
+    // Both the plain and the TLS factory start from an unconnected plain socket; this one also times its connect.
+    return new TimedSocket();
+  }
+
+  @Override
+  public Socket connectSocket(TimeValue connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress,
+                              InetSocketAddress localAddress, HttpContext context) throws IOException {
+    List<InetAddress> candidates = vettedAddresses.candidates(host.getHostName());
+    if (candidates.size() > 1) {
+      return race(connectTimeout, socket, host, remoteAddress.getPort(), localAddress, context, candidates);
+    }
+    long start = System.nanoTime();
+    // For https the delegate connects and completes the TLS handshake before returning.
+    Socket connected = delegate.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+    long elapsed = System.nanoTime() - start;
+    long connect = socket instanceof TimedSocket timed && timed.connectNanos >= 0 ? timed.connectNanos : elapsed;
+    PhaseTimings.record(PhaseTimings.Phase.CONNECT, connect);
+    metrics.connectionOpened(tls);
+    if (tls) {
+      PhaseTimings.record(PhaseTimings.Phase.TLS, elapsed - connect);
+      metrics.tlsHandshake();
+    }
+    return connected;
+  }
+
+  @Override
+  public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context) throws IOException {
+    if (!(delegate instanceof LayeredConnectionSocketFactory layered)) {
+      throw new IllegalStateException("TLS upgrade is not supported for plain connections");
+    }
+    long start = System.nanoTime();
+    Socket upgraded = layered.createLayeredSocket(socket, target, port, context);
+    PhaseTimings.record(PhaseTimings.Phase.TLS, System.nanoTime() - start);
+    metrics.tlsHandshake();
+    return upgraded;
+  }
+
+  private Socket race(TimeValue connectTimeout, Socket socket, HttpHost host, int port, InetSocketAddress localAddress,
+                      HttpContext context, List<InetAddress> candidates) throws IOException {
+    // Each attempt gets a socket configured like the one the connection operator prepared; that one is never used.
+    int soTimeout = socket.getSoTimeout();
+    boolean tcpNoDelay = socket.getTcpNoDelay();
+    boolean keepAlive = socket.getKeepAlive();
+    socket.close();
+    Duration timeout = connectTimeout == null ? Duration.ZERO : Duration.ofMillis(connectTimeout.toMilliseconds());
+
+    long start = System.nanoTime();
+    Socket connected = connector.connect(candidates, port, localAddress, timeout, () -> {
+      Socket attempt = new Socket();
+      try {
+        attempt.setSoTimeout(soTimeout);
+        attempt.setTcpNoDelay(tcpNoDelay);
+        attempt.setKeepAlive(keepAlive);
+      } catch (SocketException e) {
+        throw new UncheckedIOException(e);
+      }
+      return attempt;
+    });
+    PhaseTimings.record(PhaseTimings.Phase.CONNECT, System.nanoTime() - start);
+    metrics.connectionOpened(tls);
+    if (!tls) {
+      return connected;
+    }
+
+    long handshakeStart = System.nanoTime();
+    try {
+      Socket upgraded = ((LayeredConnectionSocketFactory) delegate).createLayeredSocket(connected, host.getHostName(), port, context);
+      PhaseTimings.record(PhaseTimings.Phase.TLS, System.nanoTime() - handshakeStart);
+      metrics.tlsHandshake();
+      return upgraded;
+    } catch (IOException | RuntimeException e) {
+      connected.close();
+      throw e;
+    }
+  }
+
+  private static final class TimedSocket extends Socket {
+    private volatile long connectNanos = -1;
+
+    @Override
+    public void connect(SocketAddress endpoint, int timeout) throws IOException {
+      long start = System.nanoTime();
+      try {
+        super.connect(endpoint, timeout);
+      } finally {
+        connectNanos = System.nanoTime() - start;
+      }
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package com.datadoghq.workshops.samplejavaapp.outbound;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counters for the outbound connection pool: requests sent, connections opened and TLS handshakes performed.
+ *
+ * Every request that does not open a connection was served from a pooled keep-alive connection, which is what
+ * the reuse ratio gauge reports.
+ */
+@Component
+public class OutboundConnectionMetrics {
+
+  private final Counter requests;
+  private final Counter plainConnections;
+  private final Counter tlsConnections;
+  private final Counter tlsHandshakes;
+
+  public OutboundConnectionMetrics(MeterRegistry registry) {
+    this.requests = Counter.builder("outbound.http.requests")
+        .description("Outbound HTTP requests sent through the pooled client")
+        .register(registry);
+    this.plainConnections = Counter.builder("outbound.http.connections.opened")
+        .tag("scheme", "http")
+        .description("New outbound TCP connections")
+        .register(registry);
+    this.tlsConnections = Counter.builder("outbound.http.connections.opened")
+        .tag("scheme", "https")
+        .description("New outbound TCP connections")
+        .register(registry);
+    this.tlsHandshakes = Counter.builder("outbound.http.tls.handshakes")
+        .description("TLS handshakes performed by the pooled client")
+        .register(registry);
+    Gauge.builder("outbound.http.connections.reuse.ratio", this, OutboundConnectionMetrics::reuseRatio)
+        .description("Share of outbound requests served over an already open connection")
+        .register(registry);
+  }
+
+  void requestSent() {
+    requests.increment();
+  }
+
+  void connectionOpened(boolean tls) {
+    (tls ? tlsConnections : plainConnections).increment();
+  }
+
+  void tlsHandshake() {
+    tlsHandshakes.increment();
+  }
+
+  double reuseRatio() {
+    double sent = requests.count();
+    if (sent == 0) {
+      return 0;
+    }
+    double opened = plainConnections.count() + tlsConnections.count();
+    return Math.max(0, 1 - opened / sent);
+  }
+}
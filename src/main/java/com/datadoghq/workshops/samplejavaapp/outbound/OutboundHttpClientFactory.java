@@ -0,0 +1,108 @@
+package com.datadoghq.workshops.samplejavaapp.outbound;
+
+import com.datadoghq.workshops.samplejavaapp.config.OutboundHttpProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultSchemePortResolver;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.ManagedHttpClientConnectionFactory;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.socket.ConnectionSocketFactory;
+import org.apache.hc.client5.http.socket.PlainConnectionSocketFactory;
+import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.config.Registry;
+import org.apache.hc.core5.http.config.RegistryBuilder;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.pool.PoolReusePolicy;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Builds the pooled keep-alive client used for outbound website tests.
+ *
+ * Connections are pooled per route (scheme + host + port) with a per-host cap, idle ones are evicted in the
+ * background, and redirects are never followed.
+ */
+@Component
+public class OutboundHttpClientFactory {
+
+  private final OutboundHttpProperties props;
+  private final OutboundConnectionMetrics metrics;
+  private final MeterRegistry registry;
+  private final VettedAddresses vettedAddresses;
+
+  public OutboundHttpClientFactory(OutboundHttpProperties props, OutboundConnectionMetrics metrics, MeterRegistry registry,
+                                   VettedAddresses vettedAddresses) {
+    this.props = props;
+    this.metrics = metrics;
+    this.registry = registry;
+    this.vettedAddresses = vettedAddresses;
+  }
+
+  public PoolingHttpClientConnectionManager connectionManager() {
+    HappyEyeballsConnector connector = new HappyEyeballsConnector(props.getConnectionAttemptDelay());
+    Registry<ConnectionSocketFactory> socketFactories = RegistryBuilder.<ConnectionSocketFactory>create()
+        .register(URIScheme.HTTP.id, MeteredConnectionSocketFactory.plain(
+            PlainConnectionSocketFactory.getSocketFactory(), metrics, vettedAddresses, connector))
+        .register(URIScheme.HTTPS.id, MeteredConnectionSocketFactory.tls(
+            SSLConnectionSocketFactory.getSocketFactory(), metrics, vettedAddresses, connector))
+        .build();
+
+    PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+        socketFactories,
+        PoolConcurrencyPolicy.STRICT,
+        // LIFO keeps the most recently used connections hot and lets the rest age out through idle eviction.
+        PoolReusePolicy.LIFO,
+        timeValue(props.getConnectionTimeToLive()),
+        DefaultSchemePortResolver.INSTANCE,
+        // Connect to the addresses URL validation vetted rather than resolving the host again.
+        vettedAddresses,
+        ManagedHttpClientConnectionFactory.INSTANCE);
+    connectionManager.setMaxTotal(props.getMaxConnectionsTotal());
+    connectionManager.setDefaultMaxPerRoute(props.getMaxConnectionsPerHost());
+    connectionManager.setDefaultConnectionConfig(ConnectionConfig.custom()
+        .setConnectTimeout(timeout(props.getConnectTimeout()))
+        .setSocketTimeout(timeout(props.getReadTimeout()))
+        .setTimeToLive(timeValue(props.getConnectionTimeToLive()))
+        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+        .build());
+
+    new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "outbound").bindTo(registry);
+    return connectionManager;
+  }
+
+  @SuppressWarnings("deprecation")
+  public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager connectionManager) {
+    RequestConfig requestConfig = RequestConfig.custom()
+        .setConnectionRequestTimeout(timeout(props.getPoolAcquireTimeout()))
+        // Same value as the pool's ConnectionConfig; repeated here so a request deadline can shorten it per request.
+        .setConnectTimeout(timeout(props.getConnectTimeout()))
+        .setResponseTimeout(timeout(props.getReadTimeout()))
+        .setRedirectsEnabled(false)
+        .build();
+
+    return HttpClients.custom()
+        .setConnectionManager(connectionManager)
+        .setDefaultRequestConfig(requestConfig)
+        .disableRedirectHandling()
+        .evictIdleConnections(timeValue(props.getIdleTimeout()))
+        .evictExpiredConnections()
+        .addRequestInterceptorFirst((request, entity, context) -> metrics.requestSent())
+        .build();
+  }
+
+  private static Timeout timeout(Duration duration) {
+    return Timeout.ofMilliseconds(duration.toMillis());
+  }
+
+  private static TimeValue timeValue(Duration duration) {
+    return TimeValue.ofMilliseconds(duration.toMillis());
+  }
+}
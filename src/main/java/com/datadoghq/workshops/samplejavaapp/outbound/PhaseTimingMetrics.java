@@ -0,0 +1,78 @@
+package com.datadoghq.workshops.samplejavaapp.outbound;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishes {@link PhaseTimings} as the website.test.phase histogram, tagged by phase and destination host.
+ *
+ * Hosts are limited by the domain whitelist, but subdomains are not, so only the first {@value #MAX_HOSTS} distinct
+ * hosts get a tag of their own and the rest are reported as "other". The timers of a host are registered once, the
+ * first time it is seen, and looked up from then on.
+ */
+@Component
+public class PhaseTimingMetrics {
+
+  static final int MAX_HOSTS = 100;
+  static final String OTHER_HOST = "other";
+
+  private static final PhaseTimings.Phase[] PHASES = PhaseTimings.Phase.values();
+
+  private final MeterRegistry registry;
+  private final Map<String, Timer[]> timers = new ConcurrentHashMap<>();
+  private final AtomicInteger tagged = new AtomicInteger();
+  private final Timer[] otherTimers;
+
+  public PhaseTimingMetrics(MeterRegistry registry) {
+    this.registry = registry;
+    this.otherTimers = register(OTHER_HOST);
+  }
+
+  public void record(String host, PhaseTimings timings) {
+    Timer[] hostTimers = timersFor(host);
+    for (PhaseTimings.Phase phase : PHASES) {
+      long nanos = timings.nanos(phase);
+      if (nanos >= 0) {
+        hostTimers[phase.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+      }
+    }
+  }
+
+  private Timer[] timersFor(String host) {
+    if (host == null || host.isEmpty()) {
+      return otherTimers;
+    }
+    String normalized = host.toLowerCase(Locale.ROOT);
+    Timer[] hostTimers = timers.get(normalized);
+    if (hostTimers != null) {
+      return hostTimers;
+    }
+    // Runs at most once per host; a null result leaves the host out of the map once all tags are taken.
+    hostTimers = timers.computeIfAbsent(normalized,
+        h -> tagged.getAndUpdate(n -> n < MAX_HOSTS ? n + 1 : n) < MAX_HOSTS ? register(h) : null);
+    return hostTimers != null ? hostTimers : otherTimers;
+  }
+
+  private Timer[] register(String hostTag) {
+    Timer[] hostTimers = new Timer[PHASES.length];
+    for (PhaseTimings.Phase phase : PHASES) {
+      hostTimers[phase.ordinal()] = Timer.builder("website.test.phase")
+          .description("Time spent in each phase of an outbound website test")
+          .tag("phase", phase.name().toLowerCase(Locale.ROOT))
+          .tag("host", hostTag)
+          .publishPercentileHistogram()
+          .minimumExpectedValue(Duration.ofMillis(1))
+          .maximumExpectedValue(Duration.ofSeconds(30))
+          .register(registry);
+    }
+    return hostTimers;
+  }
+}
@@ -0,0 +1,85 @@
+package com.datadoghq.workshops.samplejavaapp.outbound;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Per-request breakdown of where an outbound website test spends its time, measured with {@link System#nanoTime()}.
+ *
+ * The code doing the work (URL validation, the pooled client's socket factories) reports into whatever timings are
+ * active on the current thread, so callers only need to {@link #activate()} them around each step. Phases that did
+ * not happen, such as connect and TLS on a reused connection, stay unset.
+ */
+public final class PhaseTimings {
+
+  public enum Phase {
+    DNS, CONNECT, TLS, TTFB, DOWNLOAD
+  }
+
+  private static final ThreadLocal<PhaseTimings> current = new ThreadLocal<>();
+
+  private final long[] nanos = new long[Phase.values().length];
+
+  public PhaseTimings() {
+    Arrays.fill(nanos, -1);
+  }
+
+  /**
+   * Makes these timings the target of {@link #record} on the calling thread until the returned scope is closed.
+   */
+  public Scope activate() {
+    PhaseTimings previous = current.get();
+    current.set(this);
+    return () -> {
+      if (previous == null) {
+        current.remove();
+      } else {
+        current.set(previous);
+      }
+    };
+  }
+
+  /**
+   * Adds the elapsed time to the phase of the timings active on this thread, if any.
+   */
+  public static void record(Phase phase, long elapsedNanos) {
+    PhaseTimings timings = current.get();
+    if (timings != null) {
+      timings.add(phase, elapsedNanos);
+    }
+  }
+
+  public synchronized void add(Phase phase, long elapsedNanos) {
+    int i = phase.ordinal();
+    nanos[i] = Math.max(0, nanos[i]) + Math.max(0, elapsedNanos);
+  }
+
+  /**
+   * Returns the time spent in the phase, or -1 if it did not happen.
+   */
+  public synchronized long nanos(Phase phase) {
+    return nanos[phase.ordinal()];
+  }
+
+  /**
+   * Recorded phases in milliseconds, keyed by lower-case phase name, in pipeline order.
+   */
+  public synchronized Map<String, Double> toMillis() {
+    Map<String, Double> millis = new LinkedHashMap<>();
+    for (Phase phase : Phase.values()) {
+      long value = nanos[phase.ordinal()];
+      if (value >= 0) {
+        millis.put(phase.name().toLowerCase(Locale.ROOT), value / 1_000_000.0);
+      }
+    }
+    return millis;
+  }
+
+  @FunctionalInterface
+  public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+}
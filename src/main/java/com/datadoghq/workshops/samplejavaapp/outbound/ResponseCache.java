@@ -0,0 +1,106 @@
+package com.datadoghq.workshops.samplejavaapp.outbound;
+
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded in-memory store behind {@link CachingRequestInterceptor}. Holds at most maxSize body bytes and evicts
+ * the least recently used entries beyond that.
+ */
+final class ResponseCache {
+
+  private final long maxSize;
+
+  // Guarded by this.
+  private long size;
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  ResponseCache(long maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  synchronized Entry get(String key) {
+    return entries.get(key);
+  }
+
+  synchronized void put(String key, Entry entry) {
+    store(key, entry);
+  }
+
+  /**
+   * Stores the entry unless the key already has one.
+   */
+  synchronized boolean putIfAbsent(String key, Entry entry) {
+    if (entries.containsKey(key)) {
+      return false;
+    }
+    store(key, entry);
+    return true;
+  }
+
+  synchronized void remove(String key) {
+    Entry removed = entries.remove(key);
+    if (removed != null) {
+      size -= removed.body.length;
+    }
+  }
+
+  /**
+   * A copy of all entries, least recently used first.
+   */
+  synchronized Map<String, Entry> entries() {
+    return new LinkedHashMap<>(entries);
+  }
+
+  private void store(String key, Entry entry) {
+    Entry previous = entries.put(key, entry);
+    if (previous != null) {
+      size -= previous.body.length;
+    }
+    size += entry.body.length;
+    var it = entries.entrySet().iterator();
+    while (size > maxSize && it.hasNext()) {
+      Map.Entry<String, Entry> eldest = it.next();
+      size -= eldest.getValue().body.length;
+      it.remove();
+    }
+  }
+
+  synchronized int entryCount() {
+    return entries.size();
+  }
+
+  synchronized long size() {
+    return size;
+  }
+
+  /**
+   * A stored response with the request and response times needed to compute its age (RFC 9111 section 4.2.3).
+   */
+  record Entry(int status, String statusText, HttpHeaders headers, byte[] body, Instant requestTime,
+               Instant responseTime) {
+
+    Duration currentAge(Instant now) {
+      long dateValue = CachingRequestInterceptor.parseDate(headers.getFirst(HttpHeaders.DATE), responseTime).getEpochSecond();
+      long apparentAge = Math.max(0, responseTime.getEpochSecond() - dateValue);
+      long responseDelay = Math.max(0, responseTime.getEpochSecond() - requestTime.getEpochSecond());
+      long correctedAgeValue = ageValue() + responseDelay;
+      long correctedInitialAge = Math.max(apparentAge, correctedAgeValue);
+      long residentTime = Math.max(0, now.getEpochSecond() - responseTime.getEpochSecond());
+      return Duration.ofSeconds(correctedInitialAge + residentTime);
+    }
+
+    private long ageValue() {
+      try {
+        String age = headers.getFirst(HttpHeaders.AGE);
+        return age == null ? 0 : Math.max(0, Long.parseLong(age.trim()));
+      } catch (NumberFormatException e) {
+        return 0;
+      }
+    }
+  }
+}
@@ -0,0 +1,220 @@
+package com.datadoghq.workshops.samplejavaapp.outbound;
+
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary, memory-mapped format of a {@link WarmStateSnapshot}: a header, then the vetted addresses with their
+ * absolute expiry and then the cached responses, every string and byte array length-prefixed. The size is worked
+ * out in a first pass so the file can be mapped once and filled in place; it is written next to the target and
+ * moved over it, so a crash mid-write leaves the previous snapshot intact.
+ */
+final class SnapshotFile {
+
+  private static final int MAGIC = 0x534A4157;
+  // Version 2 keys responses by a digest of the request headers; version 1 files carry them in plain text.
+  private static final int VERSION = 2;
+
+  interface Visitor {
+    void addresses(String host, List<InetAddress> addresses, Instant expiresAt);
+
+    void response(String key, ResponseCache.Entry entry);
+  }
+
+  private SnapshotFile() {
+  }
+
+  /**
+   * Writes the snapshot and returns its size in bytes.
+   */
+  static long write(Path path, Map<String, VettedAddresses.Remembered> addresses,
+                    Map<String, ResponseCache.Entry> responses, Instant now) throws IOException {
+    SizeSink size = new SizeSink();
+    encode(size, addresses, responses, now);
+
+    Path parent = path.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+    Path temp = parent.resolve(path.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size.bytes);
+      encode(new BufferSink(buffer), addresses, responses, now);
+      buffer.force();
+    }
+    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    return size.bytes;
+  }
+
+  /**
+   * Maps the snapshot and hands every entry to the visitor, in the order they were written.
+   *
+   * @throws IOException if the file cannot be read or is not a complete snapshot of this version
+   */
+  static void read(Path path, Visitor visitor) throws IOException {
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    try {
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+        throw new IOException("Not a snapshot of version " + VERSION + ": " + path);
+      }
+      buffer.getLong(); // written at
+
+      int hosts = count(buffer);
+      for (int i = 0; i < hosts; i++) {
+        String host = string(buffer);
+        Instant expiresAt = Instant.ofEpochMilli(buffer.getLong());
+        int n = count(buffer);
+        List<InetAddress> addresses = new ArrayList<>(n);
+        for (int j = 0; j < n; j++) {
+          addresses.add(InetAddress.getByAddress(bytes(buffer)));
+        }
+        visitor.addresses(host, addresses, expiresAt);
+      }
+
+      int responses = count(buffer);
+      for (int i = 0; i < responses; i++) {
+        String key = string(buffer);
+        int status = buffer.getInt();
+        String statusText = string(buffer);
+        HttpHeaders headers = new HttpHeaders();
+        int names = count(buffer);
+        for (int j = 0; j < names; j++) {
+          String name = string(buffer);
+          int values = count(buffer);
+          for (int k = 0; k < values; k++) {
+            headers.add(name, string(buffer));
+          }
+        }
+        byte[] body = bytes(buffer);
+        Instant requestTime = Instant.ofEpochMilli(buffer.getLong());
+        Instant responseTime = Instant.ofEpochMilli(buffer.getLong());
+        visitor.response(key, new ResponseCache.Entry(status, statusText, headers, body, requestTime, responseTime));
+      }
+    } catch (BufferUnderflowException e) {
+      throw new IOException("Truncated snapshot: " + path, e);
+    }
+  }
+
+  private static void encode(Sink out, Map<String, VettedAddresses.Remembered> addresses,
+                             Map<String, ResponseCache.Entry> responses, Instant now) {
+    out.putInt(MAGIC);
+    out.putInt(VERSION);
+    out.putLong(now.toEpochMilli());
+
+    out.putInt(addresses.size());
+    addresses.forEach((host, remembered) -> {
+      putString(out, host);
+      out.putLong(now.plus(remembered.remaining()).toEpochMilli());
+      out.putInt(remembered.addresses().size());
+      for (InetAddress address : remembered.addresses()) {
+        putBytes(out, address.getAddress());
+      }
+    });
+
+    out.putInt(responses.size());
+    responses.forEach((key, entry) -> {
+      putString(out, key);
+      out.putInt(entry.status());
+      putString(out, entry.statusText() == null ? "" : entry.statusText());
+      out.putInt(entry.headers().size());
+      entry.headers().forEach((name, values) -> {
+        putString(out, name);
+        out.putInt(values.size());
+        for (String value : values) {
+          putString(out, value == null ? "" : value);
+        }
+      });
+      putBytes(out, entry.body());
+      out.putLong(entry.requestTime().toEpochMilli());
+      out.putLong(entry.responseTime().toEpochMilli());
+    });
+  }
+
+  private static void putString(Sink out, String value) {
+    putBytes(out, value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void putBytes(Sink out, byte[] value) {
+    out.putInt(value.length);
+    out.put(value);
+  }
+
+  private static int count(ByteBuffer in) throws IOException {
+    int count = in.getInt();
+    if (count < 0 || count > in.remaining()) {
+      throw new IOException("Corrupt snapshot: bad length " + count);
+    }
+    return count;
+  }
+
+  private static byte[] bytes(ByteBuffer in) throws IOException {
+    byte[] value = new byte[count(in)];
+    in.get(value);
+    return value;
+  }
+
+  private static String string(ByteBuffer in) throws IOException {
+    return new String(bytes(in), StandardCharsets.UTF_8);
+  }
+
+  private interface Sink {
+    void putInt(int value);
+
+    void putLong(long value);
+
+    void put(byte[] value);
+  }
+
+  private static final class SizeSink implements Sink {
+    long bytes;
+
+    @Override
+    public void putInt(int value) {
+      bytes += Integer.BYTES;
+    }
+
+    @Override
+    public void putLong(long value) {
+      bytes += Long.BYTES;
+    }
+
+    @Override
+    public void put(byte[] value) {
+      bytes += value.length;
+    }
+  }
+
+  private record BufferSink(ByteBuffer buffer) implements Sink {
+    @Override
+    public void putInt(int value) {
+      buffer.putInt(value);
+    }
+
+    @Override
+    public void putLong(long value) {
+      buffer.putLong(value);
+    }
+
+    @Override
+    public void put(byte[] value) {
+      buffer.put(value);
+    }
+  }
+}
@@ -0,0 +1,166 @@
+package com.datadoghq.workshops.samplejavaapp.outbound;
+
+import com.datadoghq.workshops.samplejavaapp.config.OutboundHttpProperties;
+import org.apache.hc.client5.http.DnsResolver;
+import org.apache.hc.client5.http.SystemDefaultDnsResolver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Addresses that passed SSRF validation, remembered per host so the pooled client connects to exactly those
+ * addresses instead of resolving the name a second time.
+ *
+ * As a {@link DnsResolver} it hands the connection operator a single address on purpose: the operator would
+ * otherwise retry the next address after a failed connect, while the socket factory already races every vetted
+ * address through {@link #candidates(String)}. Hosts without unexpired vetted addresses do not resolve at all:
+ * falling back to DNS would connect to an address nobody checked, so the client fails with an
+ * {@link UnknownHostException}, the same as the async path.
+ */
+@Component
+public class VettedAddresses implements DnsResolver {
+
+  private final long ttlNanos;
+  private final LongSupplier nanoClock;
+
+  // Guarded by this.
+  private final LinkedHashMap<String, Entry> entries;
+
+  @Autowired
+  public VettedAddresses(OutboundHttpProperties props) {
+    this(props, System::nanoTime);
+  }
+
+  VettedAddresses(OutboundHttpProperties props, LongSupplier nanoClock) {
+    this.ttlNanos = props.getVettedAddressTtl().toNanos();
+    this.nanoClock = nanoClock;
+    int maxHosts = props.getVettedAddressMaxHosts();
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > maxHosts;
+      }
+    };
+  }
+
+  public void remember(String host, InetAddress[] addresses) {
+    if (addresses.length == 0) {
+      return;
+    }
+    List<InetAddress> ordered = interleave(Arrays.asList(addresses));
+    synchronized (this) {
+      entries.put(normalize(host), new Entry(ordered, nanoClock.getAsLong() + ttlNanos, false));
+    }
+  }
+
+  /**
+   * Addresses of the host restored from a snapshot and not vetted again since, or an empty list. URL validation
+   * checks these against its policy instead of resolving the host, which remembers them as live addresses.
+   */
+  public synchronized List<InetAddress> restored(String host) {
+    Entry entry = entries.get(normalize(host));
+    if (entry == null || !entry.restored || nanoClock.getAsLong() - entry.expiresAt > 0) {
+      return List.of();
+    }
+    return entry.addresses;
+  }
+
+  /**
+   * Puts back addresses saved in a snapshot, in the order they were saved, unless the host was vetted since.
+   */
+  void restore(String host, List<InetAddress> addresses, Duration remaining) {
+    if (addresses.isEmpty() || remaining.isNegative() || remaining.isZero()) {
+      return;
+    }
+    synchronized (this) {
+      entries.putIfAbsent(normalize(host),
+          new Entry(List.copyOf(addresses), nanoClock.getAsLong() + remaining.toNanos(), true));
+    }
+  }
+
+  /**
+   * Unexpired entries with the time they have left, for a snapshot.
+   */
+  synchronized Map<String, Remembered> export() {
+    long now = nanoClock.getAsLong();
+    Map<String, Remembered> fresh = new LinkedHashMap<>();
+    entries.forEach((host, entry) -> {
+      if (entry.expiresAt - now > 0) {
+        fresh.put(host, new Remembered(entry.addresses, Duration.ofNanos(entry.expiresAt - now)));
+      }
+    });
+    return fresh;
+  }
+
+  /**
+   * All vetted addresses of the host in connection order (IPv6 first, then alternating families), or an empty list
+   * if the host was not vetted recently.
+   */
+  public synchronized List<InetAddress> candidates(String host) {
+    Entry entry = entries.get(normalize(host));
+    if (entry == null) {
+      return List.of();
+    }
+    if (nanoClock.getAsLong() - entry.expiresAt > 0) {
+      entries.remove(normalize(host));
+      return List.of();
+    }
+    return entry.addresses;
+  }
+
+  @Override
+  public InetAddress[] resolve(String host) throws UnknownHostException {
+    List<InetAddress> candidates = candidates(host);
+    if (candidates.isEmpty()) {
+      throw new UnknownHostException("No vetted addresses for " + host);
+    }
+    return new InetAddress[]{candidates.get(0)};
+  }
+
+  @Override
+  public String resolveCanonicalHostname(String host) throws UnknownHostException {
+    return SystemDefaultDnsResolver.INSTANCE.resolveCanonicalHostname(host);
+  }
+
+  /**
+   * Orders addresses as RFC 8305 section 4 describes: IPv6 first, then alternating address families.
+   */
+  static List<InetAddress> interleave(List<InetAddress> addresses) {
+    Deque<InetAddress> v6 = new ArrayDeque<>();
+    Deque<InetAddress> v4 = new ArrayDeque<>();
+    for (InetAddress address : addresses) {
+      (address instanceof Inet6Address ? v6 : v4).add(address);
+    }
+    List<InetAddress> ordered = new ArrayList<>(addresses.size());
+    boolean preferV6 = true;
+    while (!v6.isEmpty() || !v4.isEmpty()) {
+      Deque<InetAddress> next = (preferV6 && !v6.isEmpty()) || v4.isEmpty() ? v6 : v4;
+      ordered.add(next.poll());
+      preferV6 = next == v4;
+    }
+    return List.copyOf(ordered);
+  }
+
+  private static String normalize(String host) {
+    return host.toLowerCase(Locale.ROOT);
+  }
+
+  record Remembered(List<InetAddress> addresses, Duration remaining) {
+  }
+
+  private record Entry(List<InetAddress> addresses, long expiresAt, boolean restored) {
+  }
+}
@@ -0,0 +1,127 @@
+package com.datadoghq.workshops.samplejavaapp.outbound;
+
+import com.datadoghq.workshops.samplejavaapp.config.OutboundHttpProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Saves vetted addresses and cached outbound responses to {@link SnapshotFile} on graceful shutdown and puts them
+ * back on startup, so a fresh instance does not pay a DNS lookup and a full fetch for every host its predecessor
+ * already knew.
+ *
+ * Restoring runs on a virtual thread and never holds up startup: requests that arrive first simply miss, and
+ * anything they cache wins over the snapshot. Saving runs after the web server has stopped taking requests.
+ * Expired addresses and responses that can neither be served nor revalidated are dropped on restore.
+ */
+@Component
+public class WarmStateSnapshot implements SmartLifecycle {
+  private static final Logger log = LoggerFactory.getLogger(WarmStateSnapshot.class);
+
+  private final boolean enabled;
+  private final Path path;
+  private final VettedAddresses vettedAddresses;
+  private final CachingRequestInterceptor responseCache;
+  private final Clock clock;
+  private volatile boolean running;
+
+  @Autowired
+  public WarmStateSnapshot(OutboundHttpProperties props, VettedAddresses vettedAddresses,
+                           CachingRequestInterceptor responseCache) {
+    this(props, vettedAddresses, responseCache, Clock.systemUTC());
+  }
+
+  WarmStateSnapshot(OutboundHttpProperties props, VettedAddresses vettedAddresses,
+                    CachingRequestInterceptor responseCache, Clock clock) {
+    this.enabled = props.getSnapshot().isEnabled();
+    this.path = props.getSnapshot().getPath();
+    this.vettedAddresses = vettedAddresses;
+    this.responseCache = responseCache;
+    this.clock = clock;
+  }
+
+  @Override
+  public void start() {
+    running = true;
+    if (enabled) {
+      Thread.ofVirtual().name("warm-state-restore").start(this::restore);
+    }
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+    if (enabled) {
+      save();
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * Below the web server's graceful shutdown phase, so it starts after the server and stops after it drained.
+   */
+  @Override
+  public int getPhase() {
+    return DEFAULT_PHASE - 4096;
+  }
+
+  void restore() {
+    long start = System.nanoTime();
+    Instant now = clock.instant();
+    int[] restored = new int[2];
+    try {
+      SnapshotFile.read(path, new SnapshotFile.Visitor() {
+        @Override
+        public void addresses(String host, List<InetAddress> addresses, Instant expiresAt) {
+          Duration remaining = Duration.between(now, expiresAt);
+          if (!remaining.isNegative() && !remaining.isZero()) {
+            vettedAddresses.restore(host, addresses, remaining);
+            restored[0]++;
+          }
+        }
+
+        @Override
+        public void response(String key, ResponseCache.Entry entry) {
+          if (responseCache.restore(key, entry)) {
+            restored[1]++;
+          }
+        }
+      });
+      log.info("Restored warm state from {}: hosts={} responses={} tookMs={}", path, restored[0], restored[1],
+          Duration.ofNanos(System.nanoTime() - start).toMillis());
+    } catch (NoSuchFileException e) {
+      log.info("No warm state snapshot at {}, starting cold", path);
+    } catch (IOException | RuntimeException e) {
+      log.warn("Could not restore warm state from {}, starting cold", path, e);
+    }
+  }
+
+  void save() {
+    long start = System.nanoTime();
+    try {
+      var addresses = vettedAddresses.export();
+      var responses = responseCache.entries();
+      long bytes = SnapshotFile.write(path, addresses, responses, clock.instant());
+      log.info("Saved warm state to {}: hosts={} responses={} bytes={} tookMs={}", path, addresses.size(),
+          responses.size(), bytes, Duration.ofNanos(System.nanoTime() - start).toMillis());
+    } catch (IOException | RuntimeException e) {
+      // The previous snapshot, if any, is left in place; restore drops whatever has expired since.
+      log.warn("Could not save warm state to {}", path, e);
+    }
+  }
+}
@@ -0,0 +1,159 @@
+package com.datadoghq.workshops.samplejavaapp.service;
+
+import com.datadoghq.workshops.samplejavaapp.outbound.Deadline;
+
+import javax.naming.Context;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.InitialDirContext;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves A and AAAA records in parallel through the JDK DNS provider, bounded by a deadline we control.
+ *
+ * Fails closed: a timeout or a failed lookup for either record type surfaces as {@link UnknownHostException}, so
+ * the caller never validates a host against a partial answer. Unlike the system resolver it never consults
+ * /etc/hosts or nsswitch, which is why it is off unless url.validation.dns.async-enabled is set.
+ */
+final class AsyncDnsHostResolver implements URLValidationService.HostResolver {
+
+  private static final String DNS_CONTEXT_FACTORY = "com.sun.jndi.dns.DnsContextFactory";
+  private static final Pattern ipv4Literal = Pattern.compile("^\\d{1,3}(?:\\.\\d{1,3}){3}$");
+
+  private final String providerUrl;
+  private final Duration timeout;
+  private final Executor executor;
+
+  AsyncDnsHostResolver(List<String> servers, Duration timeout, Executor executor) {
+    this.providerUrl = toProviderUrl(servers);
+    this.timeout = Objects.requireNonNull(timeout, "timeout");
+    this.executor = Objects.requireNonNull(executor, "executor");
+    if (timeout.isNegative() || timeout.isZero()) {
+      throw new IllegalStateException("url.validation.dns.timeout must be positive");
+    }
+  }
+
+  @Override
+  public InetAddress[] resolveAllByName(String host) throws UnknownHostException {
+    if (isIpLiteral(host)) {
+      // Literals never hit the network; InetAddress parses them directly.
+      return new InetAddress[]{InetAddress.getByName(host)};
+    }
+
+    // Never wait past the request's deadline, if one is active on this thread.
+    long timeoutMs = Math.max(1, Deadline.current().cap(timeout).toMillis());
+    CompletableFuture<List<InetAddress>> ipv4 = lookupAsync(host, "A", timeoutMs);
+    CompletableFuture<List<InetAddress>> ipv6 = lookupAsync(host, "AAAA", timeoutMs);
+
+    try {
+      CompletableFuture.allOf(ipv4, ipv6).get(timeoutMs, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      ipv4.cancel(true);
+      ipv6.cancel(true);
+      throw unknownHost(host, "DNS lookup timed out", e);
+    } catch (ExecutionException e) {
+      throw unknownHost(host, "DNS lookup failed", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw unknownHost(host, "DNS lookup interrupted", e);
+    }
+
+    List<InetAddress> all = new ArrayList<>(ipv4.join());
+    all.addAll(ipv6.join());
+    if (all.isEmpty()) {
+      throw new UnknownHostException(host);
+    }
+    return all.toArray(new InetAddress[0]);
+  }
+
+  private CompletableFuture<List<InetAddress>> lookupAsync(String host, String recordType, long timeoutMs) {
+    return CompletableFuture.supplyAsync(() -> {
+      try {
+        return lookup(host, recordType, timeoutMs);
+      } catch (NamingException | UnknownHostException e) {
+        throw new CompletionException(e);
+      }
+    }, executor);
+  }
+
+  private List<InetAddress> lookup(String host, String recordType, long timeoutMs)
+      throws NamingException, UnknownHostException {
+    Hashtable<String, String> env = new Hashtable<>();
+    env.put(Context.INITIAL_CONTEXT_FACTORY, DNS_CONTEXT_FACTORY);
+    env.put(Context.PROVIDER_URL, providerUrl);
+    // A single attempt sized to the whole budget, so the worker never outlives the caller's deadline by much.
+    env.put("com.sun.jndi.dns.timeout.initial", Long.toString(timeoutMs));
+    env.put("com.sun.jndi.dns.timeout.retries", "1");
+
+    DirContext ctx = new InitialDirContext(env);
+    try {
+      Attributes attrs;
+      try {
+        attrs = ctx.getAttributes(host, new String[]{recordType});
+      } catch (NameNotFoundException e) {
+        // NXDOMAIN: no records of any type.
+        return List.of();
+      }
+
+      // Recursive resolvers chase CNAMEs for us; the answer section carries the final records.
+      Attribute records = attrs.get(recordType);
+      if (records == null) {
+        return List.of();
+      }
+      List<InetAddress> out = new ArrayList<>(records.size());
+      NamingEnumeration<?> values = records.getAll();
+      while (values.hasMore()) {
+        String text = String.valueOf(values.next());
+        out.add(InetAddress.getByAddress(host, InetAddress.getByName(text).getAddress()));
+      }
+      return out;
+    } finally {
+      ctx.close();
+    }
+  }
+
+  static boolean isIpLiteral(String host) {
+    return host.indexOf(':') >= 0 || ipv4Literal.matcher(host).matches();
+  }
+
+  private static String toProviderUrl(List<String> servers) {
+    if (servers == null || servers.isEmpty()) {
+      // "dns:" without an authority uses the platform resolver configuration.
+      return "dns:";
+    }
+    StringBuilder sb = new StringBuilder();
+    for (String server : servers) {
+      if (server == null || server.isBlank()) {
+        continue;
+      }
+      if (!sb.isEmpty()) {
+        sb.append(' ');
+      }
+      sb.append("dns://").append(server.trim());
+    }
+    return sb.isEmpty() ? "dns:" : sb.toString();
+  }
+
+  private static UnknownHostException unknownHost(String host, String message, Throwable cause) {
+    UnknownHostException e = new UnknownHostException(message + ": " + host);
+    e.initCause(cause);
+    return e;
+  }
+}
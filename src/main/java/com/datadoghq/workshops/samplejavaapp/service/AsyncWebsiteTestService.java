@@ -0,0 +1,306 @@
+package com.datadoghq.workshops.samplejavaapp.service;
+
+import com.datadoghq.workshops.samplejavaapp.config.OutboundHttpProperties;
+import com.datadoghq.workshops.samplejavaapp.config.WebsiteTestProperties;
+import com.datadoghq.workshops.samplejavaapp.exception.DeadlineExceededException;
+import com.datadoghq.workshops.samplejavaapp.exception.DeadlineExceededException.Stage;
+import com.datadoghq.workshops.samplejavaapp.exception.InvalidURLException;
+import com.datadoghq.workshops.samplejavaapp.http.WebsiteTestRequest;
+import com.datadoghq.workshops.samplejavaapp.jfr.OutboundFetchEvent;
+import com.datadoghq.workshops.samplejavaapp.outbound.Deadline;
+import com.datadoghq.workshops.samplejavaapp.outbound.VettedAddresses;
+import com.datadoghq.workshops.samplejavaapp.service.ServiceMetrics.Outcome;
+import com.datadoghq.workshops.samplejavaapp.service.ServiceMetrics.WebsiteCall;
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.apache.hc.core5.http.ConnectionRequestTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+
+/**
+ * Website tests that do not hold the request thread: the caller gets a future right after URL validation, and the
+ * exchange runs on a virtual thread through the pooled client, so it connects to exactly the addresses validation
+ * vetted. Bodies are buffered up to website.test.max-body-size each, and buffered bodies together stay within
+ * website.test.async-buffer-budget. The budget is charged one buffer at a time as the body is read, not up front, so
+ * exchanges still waiting on a slow remote hold none of it.
+ */
+@Service
+public class AsyncWebsiteTestService implements DisposableBean {
+    private final Logger log = LoggerFactory.getLogger(AsyncWebsiteTestService.class);
+
+    // RFC 9110 token characters; anything else cannot be sent as a header name.
+    private static final Pattern HEADER_NAME = Pattern.compile("[!#$%&'*+\\-.^_`|~0-9A-Za-z]+");
+
+    // Headers that describe the connection or the framing rather than the request; the client sets these itself.
+    private static final Set<String> RESTRICTED_HEADERS =
+        Set.of("connection", "content-length", "expect", "host", "keep-alive", "te", "trailer", "transfer-encoding", "upgrade");
+
+    private final ClientHttpRequestFactory requestFactory;
+    private final VettedAddresses vettedAddresses;
+    private final URLValidationService urlValidationService;
+    private final WebsiteTestProperties websiteProps;
+    private final OutboundHttpProperties outboundProps;
+    private final ServiceMetrics metrics;
+    private final Semaphore bufferBudget;
+    private final ExecutorService exchanges =
+        Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("website-async-", 0).factory());
+    private final ScheduledThreadPoolExecutor timeouts =
+        new ScheduledThreadPoolExecutor(1, Thread.ofPlatform().daemon().name("website-async-timeout").factory());
+
+    public AsyncWebsiteTestService(ClientHttpRequestFactory outboundRequestFactory, VettedAddresses vettedAddresses,
+                                   URLValidationService urlValidationService, WebsiteTestProperties websiteProps,
+                                   OutboundHttpProperties outboundProps, ServiceMetrics metrics) {
+        this.requestFactory = outboundRequestFactory;
+        this.vettedAddresses = vettedAddresses;
+        this.urlValidationService = urlValidationService;
+        this.websiteProps = websiteProps;
+        this.outboundProps = outboundProps;
+        this.metrics = metrics;
+        this.bufferBudget = new Semaphore((int) Math.min(Integer.MAX_VALUE, websiteProps.getAsyncBufferBudget().toBytes()));
+        // Completed exchanges cancel their timeout; drop it right away rather than holding the result until it fires.
+        this.timeouts.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Validates the URL on the calling thread, then sends the request asynchronously. The future completes with
+     * the body (cut off at website.test.max-body-size) or a status line for 4xx/5xx responses. If the deadline
+     * runs out first, it completes exceptionally with a {@link DeadlineExceededException}; if the buffer budget runs
+     * out while the body is read, with a {@link TaskRejectedException}.
+     *
+     * @throws InvalidURLException if the URL fails SSRF validation; no connection is opened in that case
+     * @throws IllegalArgumentException if the custom header is not a valid or permitted HTTP header
+     * @throws DeadlineExceededException if the deadline runs out before the request is sent
+     */
+    public CompletableFuture<byte[]> testWebsite(WebsiteTestRequest request, Deadline deadline) {
+        try (Deadline.Scope ignored = deadline.activate()) {
+            // SSRF protection: validate before processing any user-controlled headers.
+            urlValidationService.validateURL(request.url);
+        } catch (InvalidURLException e) {
+            log.warn("Blocked website test URL. reason={}", e.getReason());
+            throw e;
+        }
+
+        long start = System.nanoTime();
+        return send(request, deadline).handle((response, e) -> {
+            metrics.websiteCall(WebsiteCall.ASYNC, e == null ? Outcome.SUCCESS : Outcome.ERROR, System.nanoTime() - start);
+            if (e != null) {
+                throw e instanceof CompletionException completion ? completion : new CompletionException(e);
+            }
+            HttpStatusCode status = HttpStatusCode.valueOf(response.status());
+            if (status.isError()) {
+                return ("URL returned status code: " + status).getBytes(StandardCharsets.UTF_8);
+            }
+            metrics.bytesRead(ServiceMetrics.Source.WEBSITE, response.body().length);
+            metrics.bytesServed(ServiceMetrics.Source.WEBSITE, response.body().length);
+            return response.body();
+        });
+    }
+
+    /**
+     * Sends the request without validating it and reads the body only to count it, up to
+     * website.test.max-body-size; nothing is buffered, so no buffer budget is taken. Callers must have run the URL
+     * through URLValidationService first; a host without vetted addresses fails with an
+     * {@link UnknownHostException} instead of being resolved again. Cancelling the future aborts the exchange.
+     */
+    CompletableFuture<Fetched> count(WebsiteTestRequest request) {
+        return exchange(request, Deadline.unbounded(), false);
+    }
+
+    /**
+     * Like {@link #count(WebsiteTestRequest)}, but keeps the body of successful responses, with every timeout capped
+     * at what is left of the deadline. A timeout caused by the deadline completes the future with a
+     * {@link DeadlineExceededException} naming the stage.
+     */
+    CompletableFuture<Fetched> send(WebsiteTestRequest request, Deadline deadline) {
+        return exchange(request, deadline, true);
+    }
+
+    private CompletableFuture<Fetched> exchange(WebsiteTestRequest request, Deadline deadline, boolean keepBody) {
+        deadline.check(Stage.CONNECT);
+        URI uri = URI.create(request.url.trim());
+        HttpHeaders headers = customHeaders(request);
+        if (uri.getHost() == null || vettedAddresses.candidates(uri.getHost()).isEmpty()) {
+            return CompletableFuture.failedFuture(new UnknownHostException("No vetted addresses for " + uri.getHost()));
+        }
+
+        int maxBytes = (int) Math.min(Integer.MAX_VALUE, websiteProps.getMaxBodySize().toBytes());
+        CompletableFuture<Fetched> result = new CompletableFuture<>();
+        Future<?> exchange;
+        try {
+            exchange = exchanges.submit(() -> {
+                OutboundFetchEvent event = new OutboundFetchEvent();
+                event.begin();
+                Fetched fetched = null;
+                Exception failure = null;
+                try (Deadline.Scope ignored = deadline.activate()) {
+                    fetched = keepBody ? fetch(uri, headers, maxBytes) : fetchAndCount(uri, headers, maxBytes);
+                } catch (Exception e) {
+                    failure = deadlineExceeded(deadline, e);
+                }
+                // Committed before the future completes, so whoever waits on it can already see the event.
+                if (event.shouldCommit()) {
+                    event.host = uri.getHost();
+                    event.method = HttpMethod.GET.name();
+                    event.call = keepBody ? "async" : "batch";
+                    event.status = fetched == null ? 0 : fetched.status();
+                    event.bytesRead = fetched == null ? 0 : fetched.bytes();
+                    // Counted bodies are not passed on; batch results only carry their size.
+                    event.bytesServed = fetched == null || !keepBody ? 0 : fetched.body().length;
+                    // A result the overall timeout got to first never reached the caller.
+                    Outcome outcome = fetched != null && !result.isDone() ? Outcome.SUCCESS : Outcome.ERROR;
+                    event.outcome = outcome.name().toLowerCase(Locale.ROOT);
+                    event.commit();
+                }
+                if (fetched != null) {
+                    result.complete(fetched);
+                } else {
+                    result.completeExceptionally(failure);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        // The response timeout bounds each read; bound the whole exchange as well.
+        Duration overall = deadline.cap(outboundProps.getConnectTimeout().plus(outboundProps.getReadTimeout()));
+        ScheduledFuture<?> timeout = timeouts.schedule(
+            () -> result.completeExceptionally(deadlineExceeded(deadline, new TimeoutException("Website test timed out"))),
+            overall.toMillis(), TimeUnit.MILLISECONDS);
+        // Interrupting a virtual thread blocked on a socket closes the socket, which aborts the exchange.
+        result.whenComplete((fetched, e) -> {
+            timeout.cancel(false);
+            if (e != null) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Reads the body one buffer at a time, taking each buffer from the budget before reading into it and handing
+     * back what the read did not fill. The rest goes back once the exchange is over, successful or not.
+     */
+    private Fetched fetch(URI uri, HttpHeaders headers, int maxBytes) throws IOException {
+        int bufferSize = (int) Math.min(maxBytes, websiteProps.getBufferSize().toBytes());
+        int charged = 0;
+        // Closing the response with body bytes left unread aborts the connection instead of draining it.
+        try (ClientHttpResponse response = execute(uri, headers)) {
+            int status = response.getStatusCode().value();
+            if (HttpStatusCode.valueOf(status).isError()) {
+                return new Fetched(status, new byte[0], 0);
+            }
+            InputStream body = response.getBody();
+            ByteArrayOutputStream buffered = new ByteArrayOutputStream(bufferSize);
+            byte[] chunk = new byte[bufferSize];
+            while (buffered.size() < maxBytes) {
+                int want = Math.min(chunk.length, maxBytes - buffered.size());
+                if (!bufferBudget.tryAcquire(want)) {
+                    throw new TaskRejectedException("Async website test buffer budget is spent");
+                }
+                charged += want;
+                int n = body.readNBytes(chunk, 0, want);
+                bufferBudget.release(want - n);
+                charged -= want - n;
+                buffered.write(chunk, 0, n);
+                if (n < want) {
+                    break;
+                }
+            }
+            return new Fetched(status, buffered.toByteArray(), buffered.size());
+        } finally {
+            bufferBudget.release(charged);
+        }
+    }
+
+    private Fetched fetchAndCount(URI uri, HttpHeaders headers, int maxBytes) throws IOException {
+        try (ClientHttpResponse response = execute(uri, headers)) {
+            InputStream body = response.getBody();
+            byte[] scratch = new byte[(int) Math.min(maxBytes, websiteProps.getBufferSize().toBytes())];
+            long counted = 0;
+            while (counted < maxBytes) {
+                int n = body.read(scratch, 0, (int) Math.min(scratch.length, maxBytes - counted));
+                if (n < 0) {
+                    break;
+                }
+                counted += n;
+            }
+            return new Fetched(response.getStatusCode().value(), new byte[0], counted);
+        }
+    }
+
+    private ClientHttpResponse execute(URI uri, HttpHeaders headers) throws IOException {
+        ClientHttpRequest request = requestFactory.createRequest(uri, HttpMethod.GET);
+        request.getHeaders().putAll(headers);
+        return request.execute();
+    }
+
+    private static Exception deadlineExceeded(Deadline deadline, Exception e) {
+        if (!deadline.isExpired() || !(e instanceof InterruptedIOException || e instanceof TimeoutException)) {
+            return e;
+        }
+        Stage stage = e instanceof ConnectTimeoutException || e instanceof ConnectionRequestTimeoutException
+            ? Stage.CONNECT
+            : Stage.READ;
+        return deadline.exceeded(stage, e);
+    }
+
+    private static HttpHeaders customHeaders(WebsiteTestRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        String name = request.customHeaderKey;
+        if (name == null || name.isEmpty()) {
+            return headers;
+        }
+        String value = request.customHeaderValue == null ? "" : request.customHeaderValue;
+        if (!HEADER_NAME.matcher(name).matches() || RESTRICTED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+            throw new IllegalArgumentException("Header name not permitted");
+        }
+        if (value.chars().anyMatch(c -> c == '\r' || c == '\n' || c == 0)) {
+            throw new IllegalArgumentException("Header value not permitted");
+        }
+        headers.set(name, value);
+        return headers;
+    }
+
+    @Override
+    public void destroy() {
+        exchanges.shutdownNow();
+        timeouts.shutdownNow();
+    }
+
+    /**
+     * Status, body and body size (up to website.test.max-body-size) of a response. The body is empty for 4xx/5xx
+     * responses and when it was only counted.
+     */
+    record Fetched(int status, byte[] body, long bytes) {
+    }
+}
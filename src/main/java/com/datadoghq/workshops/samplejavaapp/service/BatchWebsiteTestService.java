@@ -0,0 +1,204 @@
+package com.datadoghq.workshops.samplejavaapp.service;
+
+import com.datadoghq.workshops.samplejavaapp.config.WebsiteTestProperties;
+import com.datadoghq.workshops.samplejavaapp.exception.DeadlineExceededException;
+import com.datadoghq.workshops.samplejavaapp.exception.DeadlineExceededException.Stage;
+import com.datadoghq.workshops.samplejavaapp.exception.InvalidURLBatchException;
+import com.datadoghq.workshops.samplejavaapp.exception.InvalidURLException;
+import com.datadoghq.workshops.samplejavaapp.http.WebsiteBatchTestRequest;
+import com.datadoghq.workshops.samplejavaapp.http.WebsiteBatchTestResult;
+import com.datadoghq.workshops.samplejavaapp.http.WebsiteTestRequest;
+import com.datadoghq.workshops.samplejavaapp.outbound.Deadline;
+import com.datadoghq.workshops.samplejavaapp.outbound.HostConcurrencyLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Tests many websites in one call. Every URL is validated before anything is fetched; the fetches then run
+ * asynchronously on the pooled client, capped globally and per destination host.
+ */
+@Service
+public class BatchWebsiteTestService {
+    private final Logger log = LoggerFactory.getLogger(BatchWebsiteTestService.class);
+
+    private final AsyncWebsiteTestService asyncWebsiteTestService;
+    private final URLValidationService urlValidationService;
+    private final HostConcurrencyLimiter limiter;
+    private final int maxUrls;
+
+    public BatchWebsiteTestService(AsyncWebsiteTestService asyncWebsiteTestService,
+                                   URLValidationService urlValidationService,
+                                   WebsiteTestProperties props) {
+        this.asyncWebsiteTestService = asyncWebsiteTestService;
+        this.urlValidationService = urlValidationService;
+        WebsiteTestProperties.Batch batch = props.getBatch();
+        this.limiter = new HostConcurrencyLimiter(batch.getMaxConcurrency(), batch.getMaxPerHost(), batch.getMaxWaiting());
+        this.maxUrls = batch.getMaxUrls();
+    }
+
+    /**
+     * Validates all URLs in parallel within the deadline, then fetches them and hands each result to the sink as
+     * soon as it completes. The returned future completes once every result has been delivered; cancelling it
+     * aborts the fetches still running and gives up the slots still waited for.
+     *
+     * @throws IllegalArgumentException if the batch is empty or larger than website.test.batch.max-urls
+     * @throws InvalidURLBatchException if any URL fails SSRF validation; nothing is fetched in that case
+     * @throws DeadlineExceededException if validation does not finish within the deadline
+     */
+    public CompletableFuture<Void> testWebsites(WebsiteBatchTestRequest batch, Deadline deadline,
+                                                Consumer<WebsiteBatchTestResult> sink) {
+        List<String> urls = batch.urls == null ? List.of() : batch.urls;
+        if (urls.isEmpty() || urls.size() > maxUrls) {
+            throw new IllegalArgumentException("Batch must contain between 1 and " + maxUrls + " URLs");
+        }
+        List<String> hosts = validateAll(urls, deadline);
+
+        AtomicBoolean aborted = new AtomicBoolean();
+        List<CompletableFuture<WebsiteBatchTestResult>> fetches = new ArrayList<>(urls.size());
+        CompletableFuture<?>[] delivered = new CompletableFuture<?>[urls.size()];
+        for (int i = 0; i < urls.size(); i++) {
+            WebsiteTestRequest request = new WebsiteTestRequest();
+            request.url = urls.get(i);
+            request.customHeaderKey = batch.customHeaderKey;
+            request.customHeaderValue = batch.customHeaderValue;
+            CompletableFuture<WebsiteBatchTestResult> fetch = fetch(i, hosts.get(i), request, aborted);
+            fetches.add(fetch);
+            delivered[i] = fetch.thenAccept(sink);
+        }
+        CompletableFuture<Void> done = CompletableFuture.allOf(delivered);
+        done.whenComplete((ignored, e) -> {
+            if (e != null) {
+                // Set first: aborting one fetch frees a slot that would otherwise go to a fetch not cancelled yet.
+                aborted.set(true);
+                fetches.forEach(fetch -> fetch.cancel(true));
+            }
+        });
+        return done;
+    }
+
+    /**
+     * Returns the lower-cased host of every URL, or throws with the indexes of all URLs that failed validation.
+     */
+    private List<String> validateAll(List<String> urls, Deadline deadline) {
+        List<CompletableFuture<Void>> checks = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            checks.add(urlValidationService.validateURLAsync(url, deadline));
+        }
+        try {
+            CompletableFuture.allOf(checks.toArray(CompletableFuture<?>[]::new))
+                .get(deadline.remaining().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            checks.forEach(check -> check.cancel(true));
+            throw deadline.exceeded(Stage.DNS, e);
+        } catch (InterruptedException e) {
+            checks.forEach(check -> check.cancel(true));
+            Thread.currentThread().interrupt();
+            throw deadline.exceeded(Stage.DNS, e);
+        } catch (ExecutionException e) {
+            // Sorted out per URL below.
+        }
+
+        List<String> hosts = new ArrayList<>(urls.size());
+        List<Integer> invalid = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            try {
+                checks.get(i).join();
+                hosts.add(URI.create(urls.get(i).trim()).getHost().toLowerCase(Locale.ROOT));
+            } catch (CompletionException e) {
+                if (!(e.getCause() instanceof InvalidURLException || e.getCause() instanceof IllegalArgumentException
+                        || e.getCause() instanceof NullPointerException)) {
+                    throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+                }
+                invalid.add(i);
+            } catch (IllegalArgumentException | NullPointerException e) {
+                invalid.add(i);
+            }
+        }
+        if (!invalid.isEmpty()) {
+            log.warn("Blocked website batch. invalid={} total={}", invalid.size(), urls.size());
+            throw new InvalidURLBatchException(invalid);
+        }
+        return hosts;
+    }
+
+    /**
+     * Waits for a slot, then fetches the URL unless the batch was aborted meanwhile. The result always completes
+     * normally, with the error described in it, unless it is cancelled; that gives up the slot or aborts the fetch,
+     * whichever it is waiting on.
+     */
+    private CompletableFuture<WebsiteBatchTestResult> fetch(int index, String host, WebsiteTestRequest request,
+                                                            AtomicBoolean aborted) {
+        CompletableFuture<WebsiteBatchTestResult> result = new CompletableFuture<>();
+        CompletableFuture<Runnable> slot = limiter.acquire(host);
+        result.whenComplete((ignored, e) -> slot.cancel(false));
+
+        slot.whenComplete((release, slotError) -> {
+            long start = System.nanoTime();
+            if (slotError != null) {
+                result.complete(toResult(index, request, start, null, slotError));
+                return;
+            }
+            if (aborted.get() || result.isDone()) {
+                release.run();
+                return;
+            }
+            CompletableFuture<AsyncWebsiteTestService.Fetched> counted;
+            try {
+                counted = asyncWebsiteTestService.count(request);
+            } catch (IllegalArgumentException e) {
+                counted = CompletableFuture.failedFuture(e);
+            }
+            CompletableFuture<AsyncWebsiteTestService.Fetched> exchange = counted;
+            result.whenComplete((ignored, e) -> exchange.cancel(true));
+            exchange.whenComplete((fetched, error) -> {
+                release.run();
+                result.complete(toResult(index, request, start, fetched, error));
+            });
+        });
+        return result;
+    }
+
+    private static WebsiteBatchTestResult toResult(int index, WebsiteTestRequest request, long start,
+                                                   AsyncWebsiteTestService.Fetched fetched, Throwable error) {
+        WebsiteBatchTestResult result = new WebsiteBatchTestResult();
+        result.index = index;
+        result.url = request.url;
+        result.durationMs = (System.nanoTime() - start) / 1_000_000;
+        if (error != null) {
+            result.error = describe(error);
+        } else {
+            result.status = fetched.status();
+            result.bytes = fetched.bytes();
+        }
+        return result;
+    }
+
+    private static String describe(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof TimeoutException || cause instanceof InterruptedIOException) {
+            return "Timed out";
+        }
+        if (cause instanceof IllegalArgumentException) {
+            return "Invalid request";
+        }
+        if (cause instanceof RejectedExecutionException) {
+            return "Server busy";
+        }
+        return "Request failed";
+    }
+}
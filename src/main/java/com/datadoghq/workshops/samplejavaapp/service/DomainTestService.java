@@ -1,8 +1,11 @@
 package com.datadoghq.workshops.samplejavaapp.service;
 
+import com.datadoghq.workshops.samplejavaapp.exception.DeadlineExceededException;
 import com.datadoghq.workshops.samplejavaapp.exception.DomainTestException;
 import com.datadoghq.workshops.samplejavaapp.exception.InvalidDomainException;
 import com.datadoghq.workshops.samplejavaapp.exception.UnableToTestDomainException;
+import com.datadoghq.workshops.samplejavaapp.jfr.DomainProbeEvent;
+import com.datadoghq.workshops.samplejavaapp.outbound.Deadline;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -11,6 +14,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.IDN;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Locale;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
@@ -21,6 +25,8 @@ public class DomainTestService {
 
   private static final Logger log = LoggerFactory.getLogger(DomainTestService.class);
 
+  private final ServiceMetrics metrics;
+
   static final int timeoutMs = 10_000;
   static final int minDomainLength = 3; // "a.b"
   static final int maxDomainLength = 253; // RFC 1035/2181 practical maximum for FQDN text form
@@ -31,33 +37,64 @@ public class DomainTestService {
       Pattern.CASE_INSENSITIVE
   );
 
-  public String testDomain(String domainName) throws DomainTestException {
+  public DomainTestService(ServiceMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Pings the domain once and returns ping's output. The ping gets timeoutMs or what is left of the deadline,
+   * whichever is less.
+   *
+   * @throws DeadlineExceededException if the deadline runs out before or while pinging
+   */
+  public String testDomain(String domainName, Deadline deadline) throws DomainTestException {
     String normalizedDomainName = normalizeAndValidateDomainName(domainName);
+    deadline.check(DeadlineExceededException.Stage.PING);
 
+    DomainProbeEvent event = new DomainProbeEvent();
+    event.begin();
+    event.outcome = "error";
     try {
       ProcessBuilder processBuilder = buildPingProcess(normalizedDomainName);
+      long spawnStart = System.nanoTime();
       Process process = processBuilder.start();
+      long waitStart = System.nanoTime();
+      metrics.pingSpawn(waitStart - spawnStart);
 
-      if (!process.waitFor(timeoutMs, TimeUnit.MILLISECONDS)) {
+      long waitMs = deadline.cap(Duration.ofMillis(timeoutMs)).toMillis();
+      boolean exited = process.waitFor(waitMs, TimeUnit.MILLISECONDS);
+      metrics.pingWait(System.nanoTime() - waitStart);
+      if (!exited) {
         process.destroyForcibly();
+        if (deadline.isExpired()) {
+          event.outcome = "deadline_exceeded";
+          throw deadline.exceeded(DeadlineExceededException.Stage.PING, null);
+        }
+        event.outcome = "timeout";
         throw new UnableToTestDomainException("Timed out pinging domain");
       }
 
       int exitCode = process.exitValue();
+      event.exitCode = exitCode;
       String stdout;
       String stderr;
       try (InputStream stdoutStream = process.getInputStream();
            InputStream stderrStream = process.getErrorStream()) {
-        stdout = new String(stdoutStream.readAllBytes(), StandardCharsets.UTF_8);
-        stderr = new String(stderrStream.readAllBytes(), StandardCharsets.UTF_8);
+        byte[] stdoutBytes = stdoutStream.readAllBytes();
+        byte[] stderrBytes = stderrStream.readAllBytes();
+        event.bytesRead = stdoutBytes.length + stderrBytes.length;
+        stdout = new String(stdoutBytes, StandardCharsets.UTF_8);
+        stderr = new String(stderrBytes, StandardCharsets.UTF_8);
       }
 
       if (exitCode != 0) {
+        event.outcome = "failed";
         // Keep details server-side for troubleshooting, but do not return them to the client.
         log.warn("Ping failed for domain={} exitCode={} stderr={}", normalizedDomainName, exitCode, stderr);
         throw new UnableToTestDomainException("Unable to test domain");
       }
 
+      event.outcome = "success";
       return stdout;
     } catch (IOException e) {
       log.error("IOException while testing domain={}", normalizedDomainName, e);
@@ -66,6 +103,11 @@ public class DomainTestService {
       Thread.currentThread().interrupt();
       log.warn("Interrupted while testing domain={}", normalizedDomainName, e);
       throw new UnableToTestDomainException("Timed out pinging domain");
+    } finally {
+      if (event.shouldCommit()) {
+        event.domain = normalizedDomainName;
+        event.commit();
+      }
     }
   }
 
@@ -2,19 +2,35 @@ package com.datadoghq.workshops.samplejavaapp.service;
 
 import com.datadoghq.workshops.samplejavaapp.exception.FileForbiddenFileException;
 import com.datadoghq.workshops.samplejavaapp.exception.FileReadException;
+import com.datadoghq.workshops.samplejavaapp.jfr.FileReadEvent;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
+import java.util.Locale;
 
 @Service
 public class FileService {
     final static String ALLOWED_PREFIX = "/tmp/files/";
 
+    private final ServiceMetrics metrics;
+
+    @Autowired
+    public FileService(ServiceMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     public String readFile(String path) throws FileForbiddenFileException, FileReadException {
         if(!path.startsWith(ALLOWED_PREFIX)) {
             throw new FileForbiddenFileException("You are not allowed to read " + path);
         }
-        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
+        FileReadEvent event = new FileReadEvent();
+        event.begin();
+        long start = System.nanoTime();
+        ServiceMetrics.Outcome outcome = ServiceMetrics.Outcome.ERROR;
+        // Same decoding as FileReader; the stream is kept to count the bytes actually read.
+        try (FileInputStream in = new FileInputStream(path);
+             BufferedReader br = new BufferedReader(new InputStreamReader(in))) {
             StringBuilder sb = new StringBuilder();
             String line = br.readLine();
 
@@ -23,9 +39,44 @@ public class FileService {
                 sb.append(System.lineSeparator());
                 line = br.readLine();
             }
+            event.bytesRead = in.getChannel().position();
+            metrics.bytesRead(ServiceMetrics.Source.FILE, event.bytesRead);
+            metrics.bytesServed(ServiceMetrics.Source.FILE, utf8Length(sb));
+            outcome = ServiceMetrics.Outcome.SUCCESS;
             return sb.toString();
         } catch (IOException e) {
             throw new FileReadException(e.getMessage());
+        } finally {
+            metrics.fileRead(outcome, System.nanoTime() - start);
+            if (event.shouldCommit()) {
+                event.path = path;
+                event.outcome = outcome.name().toLowerCase(Locale.ROOT);
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Size of the content once encoded as UTF-8, the charset it is served in, without encoding it.
+     */
+    static long utf8Length(CharSequence content) {
+        long bytes = 0;
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < content.length()
+                    && Character.isLowSurrogate(content.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                bytes += 1; // encoded as '?'
+            } else {
+                bytes += 3;
+            }
         }
+        return bytes;
     }
 }
@@ -0,0 +1,152 @@
+package com.datadoghq.workshops.samplejavaapp.service;
+
+import com.datadoghq.workshops.samplejavaapp.exception.InvalidURLException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers and counters for the service hot paths.
+ *
+ * Every meter is registered up front with a fixed set of tag values, so recording is a lookup in a final field or
+ * an array and allocates nothing, and tag cardinality cannot grow with traffic. Timers publish percentile
+ * histograms; durations are taken with {@link System#nanoTime()} by the caller and passed in as nanoseconds.
+ */
+@Component
+public class ServiceMetrics {
+
+  enum WebsiteCall {
+    STREAM, PROBE, ASYNC
+  }
+
+  enum Outcome {
+    SUCCESS, ERROR
+  }
+
+  enum Source {
+    WEBSITE, FILE
+  }
+
+  private final Timer pingSpawn;
+  private final Timer pingWait;
+  private final Timer validationDns;
+  private final Timer validationPolicy;
+  private final Timer[][] websiteCalls = new Timer[WebsiteCall.values().length][Outcome.values().length];
+  private final Timer[] fileReads = new Timer[Outcome.values().length];
+  private final Map<InvalidURLException.Reason, Counter> rejectedUrls = new EnumMap<>(InvalidURLException.Reason.class);
+  private final Counter[] bytesRead = new Counter[Source.values().length];
+  private final Counter[] bytesServed = new Counter[Source.values().length];
+
+  @Autowired
+  public ServiceMetrics(MeterRegistry registry) {
+    this.pingSpawn = timer(registry, "domain.test.duration", "Time to start the ping process and to wait for it",
+        "stage", "spawn", Duration.ofMillis(1), Duration.ofSeconds(1));
+    this.pingWait = timer(registry, "domain.test.duration", "Time to start the ping process and to wait for it",
+        "stage", "wait", Duration.ofMillis(1), Duration.ofSeconds(10));
+    this.validationDns = timer(registry, "url.validation.duration", "Time spent validating URLs, DNS apart from policy checks",
+        "stage", "dns", Duration.ofMillis(1), Duration.ofSeconds(5));
+    this.validationPolicy = timer(registry, "url.validation.duration", "Time spent validating URLs, DNS apart from policy checks",
+        "stage", "policy", Duration.ofNanos(10_000), Duration.ofMillis(100));
+    for (WebsiteCall call : WebsiteCall.values()) {
+      for (Outcome outcome : Outcome.values()) {
+        websiteCalls[call.ordinal()][outcome.ordinal()] = Timer.builder("website.test.outbound")
+            .description("Outbound website test calls, from sending the request to the end of the body")
+            .tag("call", tagValue(call))
+            .tag("outcome", tagValue(outcome))
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofMillis(1))
+            .maximumExpectedValue(Duration.ofSeconds(30))
+            .register(registry);
+      }
+    }
+    for (Outcome outcome : Outcome.values()) {
+      fileReads[outcome.ordinal()] = timer(registry, "file.read.duration", "Time to read a file for /view-file",
+          "outcome", tagValue(outcome), Duration.ofNanos(10_000), Duration.ofSeconds(1));
+    }
+    for (InvalidURLException.Reason reason : InvalidURLException.Reason.values()) {
+      rejectedUrls.put(reason, Counter.builder("url.validation.rejected")
+          .description("URLs rejected by SSRF validation")
+          .tag("reason", tagValue(reason))
+          .register(registry));
+    }
+    for (Source source : Source.values()) {
+      bytesRead[source.ordinal()] = Counter.builder("bytes.read")
+          .description("Bytes read from remote websites and local files")
+          .baseUnit("bytes")
+          .tag("source", tagValue(source))
+          .register(registry);
+      bytesServed[source.ordinal()] = Counter.builder("bytes.served")
+          .description("Website body and file content bytes passed through to callers")
+          .baseUnit("bytes")
+          .tag("source", tagValue(source))
+          .register(registry);
+    }
+  }
+
+  /**
+   * Meters that record into a registry without any backend, for services built outside Spring in tests.
+   */
+  static ServiceMetrics noop() {
+    return new ServiceMetrics(new CompositeMeterRegistry());
+  }
+
+  void pingSpawn(long nanos) {
+    pingSpawn.record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  void pingWait(long nanos) {
+    pingWait.record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  void validationDns(long nanos) {
+    validationDns.record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  void validationPolicy(long nanos) {
+    validationPolicy.record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  void urlRejected(InvalidURLException.Reason reason) {
+    rejectedUrls.get(reason).increment();
+  }
+
+  void websiteCall(WebsiteCall call, Outcome outcome, long nanos) {
+    websiteCalls[call.ordinal()][outcome.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  void fileRead(Outcome outcome, long nanos) {
+    fileReads[outcome.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  void bytesRead(Source source, long bytes) {
+    bytesRead[source.ordinal()].increment(bytes);
+  }
+
+  void bytesServed(Source source, long bytes) {
+    bytesServed[source.ordinal()].increment(bytes);
+  }
+
+  private static Timer timer(MeterRegistry registry, String name, String description, String tagKey, String tagValue,
+                             Duration minimumExpected, Duration maximumExpected) {
+    return Timer.builder(name)
+        .description(description)
+        .tag(tagKey, tagValue)
+        .publishPercentileHistogram()
+        .minimumExpectedValue(minimumExpected)
+        .maximumExpectedValue(maximumExpected)
+        .register(registry);
+  }
+
+  private static String tagValue(Enum<?> value) {
+    return value.name().toLowerCase(Locale.ROOT);
+  }
+}
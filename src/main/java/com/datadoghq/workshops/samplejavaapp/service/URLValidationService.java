@@ -1,7 +1,12 @@
 package com.datadoghq.workshops.samplejavaapp.service;
 
 import com.datadoghq.workshops.samplejavaapp.config.URLValidationProperties;
+import com.datadoghq.workshops.samplejavaapp.exception.DeadlineExceededException;
 import com.datadoghq.workshops.samplejavaapp.exception.InvalidURLException;
+import com.datadoghq.workshops.samplejavaapp.jfr.DnsLookupEvent;
+import com.datadoghq.workshops.samplejavaapp.outbound.Deadline;
+import com.datadoghq.workshops.samplejavaapp.outbound.PhaseTimings;
+import com.datadoghq.workshops.samplejavaapp.outbound.VettedAddresses;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,12 +23,19 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 @Service
 public class URLValidationService {
 
   private static final String GENERIC_INVALID_MESSAGE = "Invalid or disallowed URL";
 
+  // Validations spend their time blocked on DNS; virtual threads keep that off the platform pool.
+  private static final ThreadFactory validationThreads = Thread.ofVirtual().name("url-validation-", 0).factory();
+
   @FunctionalInterface
   interface HostResolver {
     InetAddress[] resolveAllByName(String host) throws UnknownHostException;
@@ -32,25 +44,89 @@ public class URLValidationService {
   private final Logger log = LoggerFactory.getLogger(URLValidationService.class);
   private final URLValidationProperties props;
   private final HostResolver hostResolver;
+  private final VettedAddresses vettedAddresses;
+  private final ServiceMetrics metrics;
   private final List<Ipv4Cidr> blockedIpv4Cidrs;
 
   @Autowired
-  public URLValidationService(URLValidationProperties props) {
-    this(props, InetAddress::getAllByName);
+  public URLValidationService(URLValidationProperties props, VettedAddresses vettedAddresses, ServiceMetrics metrics) {
+    this(props, defaultResolver(props), vettedAddresses, metrics);
   }
 
   // Visible for tests (allows a fake resolver to avoid network DNS).
   URLValidationService(URLValidationProperties props, HostResolver hostResolver) {
+    this(props, hostResolver, null, ServiceMetrics.noop());
+  }
+
+  URLValidationService(URLValidationProperties props, HostResolver hostResolver, VettedAddresses vettedAddresses,
+                       ServiceMetrics metrics) {
     this.props = Objects.requireNonNull(props, "props");
     this.hostResolver = Objects.requireNonNull(hostResolver, "hostResolver");
+    this.vettedAddresses = vettedAddresses;
+    this.metrics = Objects.requireNonNull(metrics, "metrics");
     List<String> ranges = props.getBlacklist() == null ? List.of() : props.getBlacklist().getIpRanges();
     this.blockedIpv4Cidrs = parseBlockedCidrs(ranges);
   }
 
+  private static HostResolver defaultResolver(URLValidationProperties props) {
+    URLValidationProperties.Dns dns = props.getDns();
+    if (dns == null || !dns.isAsyncEnabled()) {
+      return InetAddress::getAllByName;
+    }
+    // DNS lookups spend their time blocked on the network; virtual threads keep that off the platform pool.
+    Executor dnsExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("dns-lookup-", 0).factory());
+    return new AsyncDnsHostResolver(dns.getServers(), dns.getTimeout(), dnsExecutor);
+  }
+
   /**
    * Validates a user supplied URL for SSRF protections. Returns true if allowed, otherwise throws.
+   * The DNS lookup is bounded by the {@link Deadline} active on the calling thread, if any.
+   *
+   * @throws DeadlineExceededException if the request's deadline runs out before or during the DNS lookup
    */
   public boolean validateURL(String rawUrl) {
+    long start = System.nanoTime();
+    long dnsNanos = 0;
+    try {
+      URL url = checkURL(rawUrl);
+      String host = url.getHost();
+      String normalizedHost = host.toLowerCase(Locale.ROOT);
+
+      // Resolve all A/AAAA records and block if any result is internal/private/link-local/etc (DNS rebinding defense).
+      long dnsStart = System.nanoTime();
+      InetAddress[] resolved;
+      try {
+        resolved = resolveAll(host, normalizedHost);
+      } finally {
+        dnsNanos = System.nanoTime() - dnsStart;
+        metrics.validationDns(dnsNanos);
+      }
+      checkResolvedAddresses(host, normalizedHost, resolved);
+      return true;
+    } catch (InvalidURLException e) {
+      metrics.urlRejected(e.getReason());
+      throw e;
+    } finally {
+      metrics.validationPolicy(System.nanoTime() - start - dnsNanos);
+    }
+  }
+
+  /**
+   * Runs {@link #validateURL(String)} on a virtual thread under the given deadline, so several URLs can be
+   * validated in parallel. The future fails with whatever validateURL would have thrown.
+   */
+  public CompletableFuture<Void> validateURLAsync(String rawUrl, Deadline deadline) {
+    return CompletableFuture.runAsync(() -> {
+      try (Deadline.Scope ignored = deadline.activate()) {
+        validateURL(rawUrl);
+      }
+    }, task -> validationThreads.newThread(task).start());
+  }
+
+  /**
+   * Policy checks that need no DNS: scheme, userinfo, host blacklist, domain whitelist and port.
+   */
+  private URL checkURL(String rawUrl) {
     if (rawUrl == null || rawUrl.trim().isEmpty()) {
       throw new InvalidURLException(InvalidURLException.Reason.MALFORMED_URL, GENERIC_INVALID_MESSAGE);
     }
@@ -95,9 +171,10 @@ public class URLValidationService {
       log.warn("Blocked URL by port policy. host={} port={}", normalizedHost, port);
       throw new InvalidURLException(InvalidURLException.Reason.DISALLOWED_PORT, GENERIC_INVALID_MESSAGE);
     }
+    return url;
+  }
 
-    // Resolve all A/AAAA records and block if any result is internal/private/link-local/etc (DNS rebinding defense).
-    final InetAddress[] resolved = resolveAll(host, normalizedHost);
+  private void checkResolvedAddresses(String host, String normalizedHost, InetAddress[] resolved) {
     for (InetAddress addr : resolved) {
       if (isBlockedAddress(addr) || isBlockedByCidr(addr)) {
         log.warn("Blocked URL by IP policy. host={}", normalizedHost);
@@ -105,7 +182,10 @@ public class URLValidationService {
       }
     }
 
-    return true;
+    // Outbound connections go to exactly these addresses, so the host is not re-resolved behind our back.
+    if (vettedAddresses != null) {
+      vettedAddresses.remember(host, resolved);
+    }
   }
 
   private URL parseUrl(String rawUrl) {
@@ -117,11 +197,39 @@ public class URLValidationService {
   }
 
   private InetAddress[] resolveAll(String host, String normalizedHost) {
+    Deadline deadline = Deadline.current();
+    deadline.check(DeadlineExceededException.Stage.DNS);
+    DnsLookupEvent event = new DnsLookupEvent();
+    event.begin();
+    event.outcome = "error";
+    long start = System.nanoTime();
     try {
-      return hostResolver.resolveAllByName(host);
+      // Addresses restored from a warm-state snapshot stand in for one lookup; they still go through the IP checks.
+      List<InetAddress> restored = vettedAddresses == null ? List.of() : vettedAddresses.restored(host);
+      if (!restored.isEmpty()) {
+        event.addresses = restored.size();
+        event.outcome = "restored";
+        return restored.toArray(new InetAddress[0]);
+      }
+      InetAddress[] resolved = hostResolver.resolveAllByName(host);
+      event.addresses = resolved.length;
+      event.outcome = "resolved";
+      return resolved;
     } catch (UnknownHostException e) {
+      if (deadline.isExpired()) {
+        // The lookup was cut short by the request's budget, which says nothing about the host.
+        event.outcome = "deadline_exceeded";
+        throw deadline.exceeded(DeadlineExceededException.Stage.DNS, e);
+      }
+      event.outcome = "unresolvable";
       log.warn("Blocked URL due to unresolvable host. host={}", normalizedHost);
       throw new InvalidURLException(InvalidURLException.Reason.UNRESOLVABLE_HOST, GENERIC_INVALID_MESSAGE, e);
+    } finally {
+      PhaseTimings.record(PhaseTimings.Phase.DNS, System.nanoTime() - start);
+      if (event.shouldCommit()) {
+        event.host = normalizedHost;
+        event.commit();
+      }
     }
   }
 
@@ -1,17 +1,46 @@
 package com.datadoghq.workshops.samplejavaapp.service;
 
+import com.datadoghq.workshops.samplejavaapp.config.WebsiteTestProperties;
+import com.datadoghq.workshops.samplejavaapp.exception.DeadlineExceededException;
+import com.datadoghq.workshops.samplejavaapp.exception.DeadlineExceededException.Stage;
+import com.datadoghq.workshops.samplejavaapp.exception.HostUnavailableException;
 import com.datadoghq.workshops.samplejavaapp.exception.InvalidURLException;
+import com.datadoghq.workshops.samplejavaapp.http.WebsiteProbeResponse;
 import com.datadoghq.workshops.samplejavaapp.http.WebsiteTestRequest;
+import com.datadoghq.workshops.samplejavaapp.jfr.OutboundFetchEvent;
+import com.datadoghq.workshops.samplejavaapp.outbound.CachingRequestInterceptor;
+import com.datadoghq.workshops.samplejavaapp.outbound.Deadline;
+import com.datadoghq.workshops.samplejavaapp.outbound.HostCircuitBreakers;
+import com.datadoghq.workshops.samplejavaapp.outbound.PhaseTimingMetrics;
+import com.datadoghq.workshops.samplejavaapp.outbound.PhaseTimings;
+import com.datadoghq.workshops.samplejavaapp.outbound.PhaseTimings.Phase;
+import com.datadoghq.workshops.samplejavaapp.service.ServiceMetrics.Outcome;
+import com.datadoghq.workshops.samplejavaapp.service.ServiceMetrics.WebsiteCall;
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.apache.hc.core5.http.ConnectionRequestTimeoutException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
 
 @Service
 public class WebsiteTestService {
@@ -23,24 +52,249 @@ public class WebsiteTestService {
     @Autowired
     private URLValidationService urlValidationService;
 
-    public String testWebsite(WebsiteTestRequest request) {
-        try {
-            // SSRF protection: validate before processing any user-controlled headers.
-            urlValidationService.validateURL(request.url);
+    @Autowired
+    private WebsiteTestProperties props;
+
+    @Autowired
+    private PhaseTimingMetrics timingMetrics;
 
-            HttpHeaders headers = new HttpHeaders();
-            if (request.customHeaderKey != null && !request.customHeaderKey.isEmpty()) {
-                headers.set(request.customHeaderKey, request.customHeaderValue);
+    @Autowired
+    private HostCircuitBreakers circuitBreakers;
+
+    @Autowired
+    private ServiceMetrics metrics;
+
+    /**
+     * Validates the URL right away and returns a body that streams the remote response to the caller through a
+     * fixed-size buffer. Bodies longer than website.test.max-body-size are cut off at that size, and onTruncated is
+     * run once it is certain the remote body had more. Every stage, the download included, only gets what is left of
+     * the deadline.
+     *
+     * @throws HostUnavailableException from the body, before anything is written, if the host's circuit breaker is
+     * open or its bulkhead is full
+     * @throws DeadlineExceededException if the deadline runs out; once the body has started streaming this can only
+     * cut the stream short
+     */
+    public StreamingResponseBody testWebsite(WebsiteTestRequest request, Deadline deadline, Runnable onTruncated) {
+        PhaseTimings timings = new PhaseTimings();
+        HttpHeaders headers = validateAndBuildHeaders(request, timings, deadline);
+        String host = hostOf(request.url);
+        long maxBytes = props.getMaxBodySize().toBytes();
+        int bufferSize = (int) props.getBufferSize().toBytes();
+
+        // The body is written on an MVC async thread, so the timings and the deadline are activated again there.
+        // The permit is taken there too, so a body that never runs holds no bulkhead slot; nothing has been written
+        // when it is refused, so MVC still answers with the handler's status code. A permit closed without a
+        // recorded response counts as a failed call.
+        return out -> {
+            try (HostCircuitBreakers.Permit permit = circuitBreakers.acquire(host);
+                 PhaseTimings.Scope ignored = timings.activate();
+                 Deadline.Scope ignoredDeadline = deadline.activate()) {
+                long start = System.nanoTime();
+                OutboundFetchEvent fetch = new OutboundFetchEvent();
+                execute(WebsiteCall.STREAM, request.url, HttpMethod.GET, headers, permit, deadline, fetch, response -> {
+                    if (CachingRequestInterceptor.isCacheHit(response)) {
+                        // Nothing went upstream, so the host's breaker has no outcome to learn from.
+                        permit.recordAbandoned();
+                    } else {
+                        permit.recordResponse(response.getStatusCode().value());
+                    }
+                    fetch.status = response.getStatusCode().value();
+                    recordTimeToFirstByte(timings, start);
+                    if (response.getStatusCode().isError()) {
+                        out.write(("URL returned status code: " + response.getStatusCode()).getBytes(StandardCharsets.UTF_8));
+                        return null;
+                    }
+                    long downloadStart = System.nanoTime();
+                    InputStream body = response.getBody();
+                    long copied = copy(body, out, maxBytes, new byte[bufferSize], deadline);
+                    // A body of exactly maxBytes is not truncated; one more byte tells the two apart.
+                    boolean truncated = copied >= maxBytes && body.read() >= 0;
+                    timings.add(Phase.DOWNLOAD, System.nanoTime() - downloadStart);
+                    fetch.bytesRead = copied + (truncated ? 1 : 0);
+                    fetch.bytesServed = copied;
+                    metrics.bytesRead(ServiceMetrics.Source.WEBSITE, fetch.bytesRead);
+                    metrics.bytesServed(ServiceMetrics.Source.WEBSITE, copied);
+                    if (truncated) {
+                        onTruncated.run();
+                    }
+                    return null;
+                });
+            } finally {
+                timingMetrics.record(host, timings);
             }
+        };
+    }
 
-            HttpEntity<String> entity = new HttpEntity<>("", headers);
+    /**
+     * Reports status and headers of the remote URL, plus the first bytes of the body unless the request is
+     * head-only. The rest of the body is never downloaded. With request.timings set, the response also carries the
+     * per-phase breakdown in milliseconds.
+     *
+     * @throws HostUnavailableException if the host's circuit breaker is open or its bulkhead is full
+     * @throws DeadlineExceededException if the deadline runs out before the probe is done
+     */
+    public WebsiteProbeResponse probeWebsite(WebsiteTestRequest request, Deadline deadline) {
+        PhaseTimings timings = new PhaseTimings();
+        HttpHeaders headers = validateAndBuildHeaders(request, timings, deadline);
+        String host = hostOf(request.url);
+        HttpMethod method = request.headOnly ? HttpMethod.HEAD : HttpMethod.GET;
+        int probeBytes = request.headOnly ? 0 : probeSize(request.probeBytes);
 
-            return this.rest.exchange(request.url, HttpMethod.GET, entity, String.class).getBody();
+        WebsiteProbeResponse result;
+        // A probe reads a few bytes; going through the cache would download the whole body to store it.
+        try (HostCircuitBreakers.Permit permit = circuitBreakers.acquire(host);
+             PhaseTimings.Scope ignored = timings.activate();
+             Deadline.Scope ignoredDeadline = deadline.activate();
+             CachingRequestInterceptor.Scope ignoredCache = CachingRequestInterceptor.bypass()) {
+            long start = System.nanoTime();
+            OutboundFetchEvent fetch = new OutboundFetchEvent();
+            result = execute(WebsiteCall.PROBE, request.url, method, headers, permit, deadline, fetch, response -> {
+                permit.recordResponse(response.getStatusCode().value());
+                fetch.status = response.getStatusCode().value();
+                recordTimeToFirstByte(timings, start);
+                WebsiteProbeResponse probe = new WebsiteProbeResponse();
+                probe.status = response.getStatusCode().value();
+                probe.headers = new LinkedHashMap<>(response.getHeaders());
+                if (!request.headOnly) {
+                    long downloadStart = System.nanoTime();
+                    InputStream body = response.getBody();
+                    byte[] prefix = body.readNBytes(probeBytes);
+                    probe.truncated = body.read() >= 0;
+                    probe.body = new String(prefix, charsetOf(response.getHeaders()));
+                    timings.add(Phase.DOWNLOAD, System.nanoTime() - downloadStart);
+                    fetch.bytesRead = prefix.length + (probe.truncated ? 1 : 0);
+                    fetch.bytesServed = prefix.length;
+                    metrics.bytesRead(ServiceMetrics.Source.WEBSITE, fetch.bytesRead);
+                    metrics.bytesServed(ServiceMetrics.Source.WEBSITE, fetch.bytesServed);
+                }
+                return probe;
+            });
+        } finally {
+            timingMetrics.record(host, timings);
+        }
+        if (result != null && request.timings) {
+            result.timings = timings.toMillis();
+        }
+        return result;
+    }
+
+    /**
+     * Runs the exchange and reports a timeout that was caused by the deadline as the stage it cut short. Such calls
+     * are handed back to the host's breaker unrecorded: a tight budget from the caller says nothing about the host.
+     * The extractor fills in status and byte counts on the fetch event, which is committed here.
+     */
+    private <T> T execute(WebsiteCall call, String url, HttpMethod method, HttpHeaders headers,
+                          HostCircuitBreakers.Permit permit, Deadline deadline, OutboundFetchEvent fetch,
+                          ResponseExtractor<T> extractor) {
+        fetch.begin();
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.ERROR;
+        try {
+            deadline.check(Stage.CONNECT);
+            T result = this.rest.execute(url, method, withHeaders(headers), extractor);
+            outcome = Outcome.SUCCESS;
+            return result;
+        } catch (ResourceAccessException e) {
+            if (!deadline.isExpired()) {
+                throw e;
+            }
+            permit.recordAbandoned();
+            throw deadline.exceeded(stageOf(e.getCause()), e);
+        } catch (DeadlineExceededException e) {
+            permit.recordAbandoned();
+            throw e;
+        } finally {
+            metrics.websiteCall(call, outcome, System.nanoTime() - start);
+            if (fetch.shouldCommit()) {
+                fetch.host = hostOf(url);
+                fetch.method = method.name();
+                fetch.call = call.name().toLowerCase(Locale.ROOT);
+                fetch.outcome = outcome.name().toLowerCase(Locale.ROOT);
+                fetch.commit();
+            }
+        }
+    }
+
+    private static Stage stageOf(Throwable timeout) {
+        return timeout instanceof ConnectTimeoutException || timeout instanceof ConnectionRequestTimeoutException
+            ? Stage.CONNECT
+            : Stage.READ;
+    }
+
+    private HttpHeaders validateAndBuildHeaders(WebsiteTestRequest request, PhaseTimings timings, Deadline deadline) {
+        try (PhaseTimings.Scope ignored = timings.activate();
+             Deadline.Scope ignoredDeadline = deadline.activate()) {
+            // SSRF protection: validate before processing any user-controlled headers.
+            urlValidationService.validateURL(request.url);
         } catch (InvalidURLException e) {
             log.warn("Blocked website test URL. reason={}", e.getReason());
             throw e;
-        } catch (HttpClientErrorException | HttpServerErrorException e) {
-            return "URL returned status code: " + e.getStatusCode();
         }
+
+        HttpHeaders headers = new HttpHeaders();
+        if (request.customHeaderKey != null && !request.customHeaderKey.isEmpty()) {
+            headers.set(request.customHeaderKey, request.customHeaderValue);
+        }
+        return headers;
+    }
+
+    private int probeSize(Integer requested) {
+        long max = props.getMaxProbeSize().toBytes();
+        long size = requested == null ? props.getDefaultProbeSize().toBytes() : requested;
+        return (int) Math.max(0, Math.min(size, max));
+    }
+
+    /**
+     * Time from sending the request to the response headers, minus connect and TLS when a new connection was opened
+     * along the way.
+     */
+    private static void recordTimeToFirstByte(PhaseTimings timings, long requestStart) {
+        long elapsed = System.nanoTime() - requestStart;
+        long setup = Math.max(0, timings.nanos(Phase.CONNECT)) + Math.max(0, timings.nanos(Phase.TLS));
+        timings.add(Phase.TTFB, elapsed - setup);
+    }
+
+    private static String hostOf(String url) {
+        try {
+            return URI.create(url.trim()).getHost();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static RequestCallback withHeaders(HttpHeaders headers) {
+        return request -> request.getHeaders().putAll(headers);
+    }
+
+    private static Charset charsetOf(HttpHeaders headers) {
+        try {
+            MediaType contentType = headers.getContentType();
+            if (contentType != null && contentType.getCharset() != null) {
+                return contentType.getCharset();
+            }
+        } catch (InvalidMediaTypeException | UnsupportedCharsetException ignored) {
+            // Remote servers send all kinds of Content-Type values; fall back to UTF-8.
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Copies at most maxBytes from in to out through the given buffer and returns the number of bytes copied.
+     * Each read is bounded by the response timeout; the deadline bounds the copy as a whole.
+     */
+    static long copy(InputStream in, OutputStream out, long maxBytes, byte[] buffer, Deadline deadline)
+            throws IOException {
+        long copied = 0;
+        while (copied < maxBytes) {
+            deadline.check(Stage.READ);
+            int n = in.read(buffer, 0, (int) Math.min(buffer.length, maxBytes - copied));
+            if (n < 0) {
+                break;
+            }
+            out.write(buffer, 0, n);
+            copied += n;
+        }
+        return copied;
     }
 }
@@ -0,0 +1,71 @@
+package com.datadoghq.workshops.samplejavaapp.web;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * One token bucket per client key for a single endpoint.
+ *
+ * Keys are spread over independently locked stripes, each an LRU map holding its share of maxClients, so lookups
+ * never contend on one lock and memory stays bounded however many addresses show up. The lock only covers the
+ * lookup; taking the token is a CAS on the bucket itself. A client that is evicted comes back with a full bucket,
+ * which only happens once maxClients more recent clients have been seen.
+ */
+final class ClientRateLimiter {
+
+  private static final int STRIPES = 16;
+
+  private final double permitsPerSecond;
+  private final int burst;
+  private final LongSupplier nanoClock;
+  private final Stripe[] stripes = new Stripe[STRIPES];
+
+  ClientRateLimiter(double permitsPerSecond, int burst, int maxClients, LongSupplier nanoClock) {
+    this.permitsPerSecond = permitsPerSecond;
+    this.burst = burst;
+    this.nanoClock = nanoClock;
+    int perStripe = Math.max(1, (maxClients + STRIPES - 1) / STRIPES);
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Stripe(perStripe);
+    }
+  }
+
+  /**
+   * Takes a token for the client. Returns 0 if the request may go ahead, otherwise the nanoseconds until it may.
+   */
+  long tryAcquire(String client) {
+    long now = nanoClock.getAsLong();
+    int hash = client.hashCode();
+    Stripe stripe = stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    TokenBucket bucket;
+    synchronized (stripe) {
+      bucket = stripe.computeIfAbsent(client, c -> new TokenBucket(permitsPerSecond, burst, now));
+    }
+    return bucket.tryAcquire(now);
+  }
+
+  int size() {
+    int size = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.size();
+      }
+    }
+    return size;
+  }
+
+  private static final class Stripe extends LinkedHashMap<String, TokenBucket> {
+    private final int maxEntries;
+
+    Stripe(int maxEntries) {
+      super(16, 0.75f, true);
+      this.maxEntries = maxEntries;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+      return size() > maxEntries;
+    }
+  }
+}
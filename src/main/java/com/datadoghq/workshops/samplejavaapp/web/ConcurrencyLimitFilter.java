@@ -0,0 +1,139 @@
+package com.datadoghq.workshops.samplejavaapp.web;
+
+import com.datadoghq.workshops.samplejavaapp.config.ConcurrencyLimitProperties;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Adaptive per-endpoint limit on in-flight requests, see {@link GradientLimiter}.
+ *
+ * Requests over the limit get 503 right away, so a slow dependency turns into fast rejections instead of a growing
+ * queue of threads. A request counts as in flight until its response is complete, which for streamed and
+ * asynchronous responses is well after the handler returned. Runs after {@link RateLimitFilter}, so a single noisy
+ * client is turned away before it takes a share of the limit.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+  private static final Logger log = LoggerFactory.getLogger(ConcurrencyLimitFilter.class);
+
+  private final boolean enabled;
+  private final LongSupplier nanoClock;
+  private final Map<String, GradientLimiter> limiters = new HashMap<>();
+
+  @Autowired
+  public ConcurrencyLimitFilter(ConcurrencyLimitProperties props) {
+    this(props, System::nanoTime);
+  }
+
+  ConcurrencyLimitFilter(ConcurrencyLimitProperties props, LongSupplier nanoClock) {
+    this.enabled = props.isEnabled();
+    this.nanoClock = nanoClock;
+    for (String endpoint : props.getEndpoints()) {
+      limiters.put(endpoint, new GradientLimiter(props.getInitialLimit(), props.getMinLimit(), props.getMaxLimit(),
+          props.getTolerance(), props.getSmoothing()));
+    }
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !enabled || !limiters.containsKey(endpointOf(request));
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    String endpoint = endpointOf(request);
+    GradientLimiter limiter = limiters.get(endpoint);
+    if (!limiter.tryAcquire()) {
+      log.debug("Shed request over the concurrency limit. endpoint={} limit={}", endpoint, limiter.limit());
+      response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+      response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+      response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+      response.getOutputStream().write("Server busy".getBytes(StandardCharsets.UTF_8));
+      return;
+    }
+
+    Release release = new Release(limiter, nanoClock.getAsLong());
+    boolean async = false;
+    try {
+      chain.doFilter(request, response);
+      if (request.isAsyncStarted()) {
+        request.getAsyncContext().addListener(release);
+        async = true;
+      }
+    } finally {
+      if (!async) {
+        release.run();
+      }
+    }
+  }
+
+  private static String endpointOf(HttpServletRequest request) {
+    String path = request.getServletPath();
+    return path.startsWith("/") ? path.substring(1) : path;
+  }
+
+  /**
+   * Hands the slot back exactly once, when the response is complete.
+   */
+  private final class Release implements AsyncListener {
+    private final GradientLimiter limiter;
+    private final long startNanos;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    Release(GradientLimiter limiter, long startNanos) {
+      this.limiter = limiter;
+      this.startNanos = startNanos;
+    }
+
+    void run() {
+      if (released.compareAndSet(false, true)) {
+        limiter.release(nanoClock.getAsLong() - startNanos);
+      }
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      run();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+      // Followed by onComplete once the container has written the timeout response.
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+      // Followed by onComplete as well.
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+      // Async restarted on a later dispatch: keep listening on the new context.
+      event.getAsyncContext().addListener(this);
+    }
+  }
+}
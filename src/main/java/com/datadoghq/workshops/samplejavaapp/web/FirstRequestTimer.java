@@ -0,0 +1,65 @@
+package com.datadoghq.workshops.samplejavaapp.web;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Records how long after JVM start the first request was served, which is what a new container under a burst
+ * actually waits for. Published as application.first.request.time next to Spring Boot's application.ready.time.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class FirstRequestTimer extends OncePerRequestFilter {
+
+  private static final Logger log = LoggerFactory.getLogger(FirstRequestTimer.class);
+
+  private final long jvmStartMillis;
+  private final LongSupplier clock;
+  private final AtomicLong firstRequestMillis = new AtomicLong(-1);
+
+  @Autowired
+  public FirstRequestTimer(MeterRegistry registry) {
+    this(registry, ManagementFactory.getRuntimeMXBean().getStartTime(), System::currentTimeMillis);
+  }
+
+  FirstRequestTimer(MeterRegistry registry, long jvmStartMillis, LongSupplier clock) {
+    this.jvmStartMillis = jvmStartMillis;
+    this.clock = clock;
+    TimeGauge.builder("application.first.request.time", firstRequestMillis, TimeUnit.MILLISECONDS,
+            millis -> millis.get() < 0 ? Double.NaN : millis.get())
+        .description("Time from JVM start until the first request was served")
+        .register(registry);
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    try {
+      chain.doFilter(request, response);
+    } finally {
+      if (firstRequestMillis.get() < 0) {
+        long elapsed = clock.getAsLong() - jvmStartMillis;
+        if (firstRequestMillis.compareAndSet(-1, elapsed)) {
+          log.info("First request served {} ms after JVM start", elapsed);
+        }
+      }
+    }
+  }
+}
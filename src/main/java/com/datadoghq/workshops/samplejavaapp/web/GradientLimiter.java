@@ -0,0 +1,99 @@
+package com.datadoghq.workshops.samplejavaapp.web;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-flight limit that follows measured latency, after the gradient algorithm of Netflix's concurrency-limits.
+ *
+ * Two moving averages of request latency are kept: a short one over the last few requests and a long one over the
+ * last few hundred. While the short average stays within tolerance of the long one the limit grows by about its
+ * square root per sample; once recent requests get slower than that, the limit shrinks in proportion, at most by
+ * half per sample. The long average slowly follows real baseline shifts, so a change in the mix of targets is
+ * absorbed rather than read as overload. Requests beyond the limit are refused right away instead of queueing.
+ */
+final class GradientLimiter {
+
+  private static final double SHORT_WINDOW_WEIGHT = 2.0 / (10 + 1);
+  private static final double LONG_WINDOW_WEIGHT = 2.0 / (600 + 1);
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final double tolerance;
+  private final double smoothing;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private volatile int limit;
+
+  // Guarded by this.
+  private double estimatedLimit;
+  private double shortRtt;
+  private double longRtt;
+  private boolean measured;
+
+  GradientLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance, double smoothing) {
+    if (minLimit < 1 || maxLimit < minLimit || tolerance < 1 || smoothing <= 0 || smoothing > 1) {
+      throw new IllegalStateException("Invalid concurrency-limit settings");
+    }
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.tolerance = tolerance;
+    this.smoothing = smoothing;
+    this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    this.limit = (int) estimatedLimit;
+  }
+
+  /**
+   * Admits a request if fewer than limit are in flight. Every admitted request must be {@link #release released}.
+   */
+  boolean tryAcquire() {
+    while (true) {
+      int current = inFlight.get();
+      if (current >= limit) {
+        return false;
+      }
+      if (inFlight.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Ends an admitted request that took rttNanos and feeds its latency into the limit.
+   */
+  void release(long rttNanos) {
+    int inFlightBefore = inFlight.getAndDecrement();
+    onSample(Math.max(1, rttNanos), inFlightBefore);
+  }
+
+  int limit() {
+    return limit;
+  }
+
+  int inFlight() {
+    return inFlight.get();
+  }
+
+  private synchronized void onSample(long rtt, int inFlightBefore) {
+    if (!measured) {
+      shortRtt = rtt;
+      longRtt = rtt;
+      measured = true;
+    } else {
+      shortRtt += (rtt - shortRtt) * SHORT_WINDOW_WEIGHT;
+      longRtt += (rtt - longRtt) * LONG_WINDOW_WEIGHT;
+    }
+    // Latency recovering after a long overload: let the baseline come down faster than its window would.
+    if (longRtt > 2 * shortRtt) {
+      longRtt *= 0.95;
+    }
+    // Without demand close to the limit, latency says nothing about whether a higher limit would hold up.
+    if (inFlightBefore < estimatedLimit / 2) {
+      return;
+    }
+
+    double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / shortRtt));
+    double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+    estimatedLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+    estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit));
+    limit = (int) estimatedLimit;
+  }
+}
@@ -0,0 +1,82 @@
+package com.datadoghq.workshops.samplejavaapp.web;
+
+import com.datadoghq.workshops.samplejavaapp.config.RateLimitProperties;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-endpoint, per-client token buckets in front of the controllers.
+ *
+ * Runs before any handler, so a client over its limit gets 429 with Retry-After before a ping process is forked or
+ * an outbound connection is opened. Clients are keyed by remote address. server.forward-headers-strategy=native
+ * makes that the address from X-Forwarded-For when the connection comes from a proxy listed in
+ * server.tomcat.remoteip.internal-proxies, so clients behind the load balancer do not share one bucket.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class RateLimitFilter extends OncePerRequestFilter {
+
+  private static final Logger log = LoggerFactory.getLogger(RateLimitFilter.class);
+
+  private final boolean enabled;
+  private final Map<String, ClientRateLimiter> limiters = new HashMap<>();
+
+  @Autowired
+  public RateLimitFilter(RateLimitProperties props) {
+    this(props, System::nanoTime);
+  }
+
+  RateLimitFilter(RateLimitProperties props, LongSupplier nanoClock) {
+    this.enabled = props.isEnabled();
+    props.getEndpoints().forEach((endpoint, limit) -> limiters.put(endpoint, new ClientRateLimiter(
+        limit.getPermitsPerSecond(), limit.getBurst(), props.getMaxClients(), nanoClock)));
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !enabled || !limiters.containsKey(endpointOf(request));
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    String endpoint = endpointOf(request);
+    long waitNanos = limiters.get(endpoint).tryAcquire(request.getRemoteAddr());
+    if (waitNanos == 0) {
+      chain.doFilter(request, response);
+      return;
+    }
+
+    long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    log.debug("Rate limited request. endpoint={} client={} retryAfter={}s", endpoint, request.getRemoteAddr(),
+        retryAfterSeconds);
+    response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+    response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+    response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+    response.getOutputStream().write("Too many requests".getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String endpointOf(HttpServletRequest request) {
+    String path = request.getServletPath();
+    return path.startsWith("/") ? path.substring(1) : path;
+  }
+}
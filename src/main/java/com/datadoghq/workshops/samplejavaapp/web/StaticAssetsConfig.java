@@ -0,0 +1,30 @@
+package com.datadoghq.workshops.samplejavaapp.web;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+
+import java.time.Duration;
+
+/**
+ * Serves the UI scripts built by gradle/assets.gradle. Their names carry a hash of their content, so a new version
+ * always has a new URL and browsers may keep them for a year without asking again. The pages referencing them go
+ * through Spring Boot's default handler, which makes browsers revalidate them (see application.properties).
+ */
+@Configuration
+public class StaticAssetsConfig implements WebMvcConfigurer {
+
+  static final Duration HASHED_ASSET_MAX_AGE = Duration.ofDays(365);
+
+  @Override
+  public void addResourceHandlers(ResourceHandlerRegistry registry) {
+    registry.addResourceHandler("/js/**")
+        .addResourceLocations("classpath:/static/js/")
+        .setCacheControl(CacheControl.maxAge(HASHED_ASSET_MAX_AGE).cachePublic().immutable())
+        .setUseLastModified(false)
+        .resourceChain(true)
+        .addResolver(new EncodedResourceResolver());
+  }
+}
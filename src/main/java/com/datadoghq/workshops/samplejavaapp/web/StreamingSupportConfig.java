@@ -0,0 +1,46 @@
+package com.datadoghq.workshops.samplejavaapp.web;
+
+import com.datadoghq.workshops.samplejavaapp.config.WebsiteTestProperties;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Runs {@code StreamingResponseBody} callbacks, i.e. /test-website downloads, on their own bounded executor instead
+ * of Spring Boot's shared task executor, whose unbounded queue would let streams pile up while holding their client
+ * sockets. Once every thread is busy and the queue is full, new streams are rejected and MainController answers 503.
+ *
+ * The executor is not a bean on purpose: an Executor bean would replace Boot's applicationTaskExecutor.
+ */
+@Configuration
+public class StreamingSupportConfig implements WebMvcConfigurer, DisposableBean {
+
+  private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+  public StreamingSupportConfig(WebsiteTestProperties props) {
+    WebsiteTestProperties.Streaming streaming = props.getStreaming();
+    // Streams spend their time blocked on the upstream socket; virtual threads keep that off the platform pool.
+    executor.setThreadFactory(Thread.ofVirtual().name("website-stream-", 0).factory());
+    executor.setCorePoolSize(streaming.getMaxConcurrent());
+    executor.setMaxPoolSize(streaming.getMaxConcurrent());
+    executor.setQueueCapacity(streaming.getQueueCapacity());
+    executor.setAllowCoreThreadTimeOut(true);
+    executor.initialize();
+  }
+
+  /**
+   * Runs after Spring Boot's own configurer, which would otherwise install the shared executor. The timeout comes
+   * from spring.mvc.async.request-timeout.
+   */
+  @Override
+  public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+    configurer.setTaskExecutor(executor);
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdown();
+  }
+}
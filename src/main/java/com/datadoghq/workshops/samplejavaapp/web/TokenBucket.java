@@ -0,0 +1,40 @@
+package com.datadoghq.workshops.samplejavaapp.web;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket kept as a single timestamp, the generic cell rate algorithm form: the state is the time at which
+ * the bucket would be full again, so taking a token is one compare-and-set with no lock and no separate refill.
+ */
+final class TokenBucket {
+
+  private final long intervalNanos;
+  private final long capacityNanos;
+  private final AtomicLong fullAt;
+
+  TokenBucket(double permitsPerSecond, int burst, long nowNanos) {
+    if (permitsPerSecond <= 0 || burst < 1) {
+      throw new IllegalStateException("rate-limit permits-per-second and burst must be positive");
+    }
+    this.intervalNanos = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+    this.capacityNanos = intervalNanos * burst;
+    this.fullAt = new AtomicLong(nowNanos);
+  }
+
+  /**
+   * Takes a token. Returns 0 if one was available, otherwise the nanoseconds until the next one is.
+   */
+  long tryAcquire(long nowNanos) {
+    while (true) {
+      long current = fullAt.get();
+      long next = (current - nowNanos > 0 ? current : nowNanos) + intervalNanos;
+      long wait = next - nowNanos - capacityNanos;
+      if (wait > 0) {
+        return wait;
+      }
+      if (fullAt.compareAndSet(current, next)) {
+        return 0;
+      }
+    }
+  }
+}
@@ -17,21 +17,6 @@ function handleError(error) {
   errorContainer.classList.remove('hidden');
 }
 
-
-function submitRequest() {
-    $.ajax({
-        url: '/view-file',
-        method: 'POST',
-        contentType: 'application/json',
-        accept: 'application/json',
-        data: JSON.stringify({
-            'path': document.getElementById('path').value || ''
-        }),
-        success: updateOutput,
-        error: handleError
-    })
-}
-
-
+// Every page has one form; its script defines submitRequest().
 var form = document.querySelectorAll('form')[0]
 form.addEventListener('submit', function(evt) { evt.preventDefault(); submitRequest(); })
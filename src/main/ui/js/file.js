@@ -0,0 +1,13 @@
+function submitRequest() {
+    $.ajax({
+        url: '/view-file',
+        method: 'POST',
+        contentType: 'application/json',
+        accept: 'application/json',
+        data: JSON.stringify({
+            'path': document.getElementById('path').value || ''
+        }),
+        success: updateOutput,
+        error: handleError
+    })
+}
@@ -0,0 +1,17 @@
+function submitRequest() {
+  var domainName = document.getElementById('domain').value
+  if (!domainName) {
+    alert("Please enter a domain name")
+    return
+  }
+  $.ajax({
+    url: '/test-domain',
+    method: 'POST',
+    contentType: 'application/json',
+    data: JSON.stringify({
+      'domainName': domainName
+    }),
+    success: updateOutput,
+    error: handleError
+  })
+}
@@ -0,0 +1,19 @@
+function submitRequest() {
+  var url = document.getElementById('url').value
+  if (!url) {
+    alert("Please enter an URL")
+    return
+  }
+  $.ajax({
+    url: '/test-website',
+    method: 'POST',
+    contentType: 'application/json',
+    data: JSON.stringify({
+      'url': url,
+      'customHeaderKey': document.getElementById('customHeaderKey').value || '',
+      'customHeaderValue': document.getElementById('customHeaderValue').value || ''
+    }),
+    success: updateOutput,
+    error: handleError
+  })
+}
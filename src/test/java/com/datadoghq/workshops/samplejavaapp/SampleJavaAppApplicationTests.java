@@ -3,7 +3,7 @@ package com.datadoghq.workshops.samplejavaapp;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "outbound.http.snapshot.enabled=false")
 class SampleJavaAppApplicationTests {
 
 	@Test
@@ -0,0 +1,109 @@
+package com.datadoghq.workshops.samplejavaapp.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OverflowAsyncAppenderTest {
+
+  @Test
+  void dropsInfoOnceOnlyTheReserveIsLeftButKeepsWarnings() throws Exception {
+    LoggerContext context = new LoggerContext();
+    StalledAppender sink = new StalledAppender();
+    sink.setContext(context);
+    sink.start();
+
+    OverflowAsyncAppender async = new OverflowAsyncAppender();
+    async.setContext(context);
+    async.setQueueSize(4);
+    async.setReserve(1);
+    async.addAppender(sink);
+    async.start();
+
+    Logger logger = context.getLogger("test");
+    logger.setAdditive(false);
+    logger.addAppender(async);
+
+    // The worker takes the first event and stalls on it, so the rest pile up in the queue.
+    logger.info("0");
+    assertTrue(sink.entered.await(5, TimeUnit.SECONDS));
+    logger.info("1");
+    logger.info("2");
+    logger.info("3");
+    logger.info("4");
+    logger.warn("5");
+
+    sink.release.countDown();
+    async.stop();
+
+    assertEquals(List.of("0", "1", "2", "3", "5"), sink.messages);
+    assertEquals(1, async.getDroppedCount());
+  }
+
+  @Test
+  void blockPolicyWaitsForRoomInsteadOfDropping() throws Exception {
+    LoggerContext context = new LoggerContext();
+    StalledAppender sink = new StalledAppender();
+    sink.setContext(context);
+    sink.start();
+
+    OverflowAsyncAppender async = new OverflowAsyncAppender();
+    async.setContext(context);
+    async.setQueueSize(4);
+    async.setOverflowPolicy(OverflowAsyncAppender.OverflowPolicy.BLOCK);
+    async.addAppender(sink);
+    async.start();
+
+    Logger logger = context.getLogger("test");
+    logger.setAdditive(false);
+    logger.addAppender(async);
+
+    logger.info("0");
+    assertTrue(sink.entered.await(5, TimeUnit.SECONDS));
+    Thread producer = new Thread(() -> {
+      for (int i = 1; i <= 5; i++) {
+        logger.info(String.valueOf(i));
+      }
+    });
+    producer.start();
+    // Four events fill the queue; the fifth has to wait for the stalled sink.
+    producer.join(200);
+    assertTrue(producer.isAlive());
+
+    sink.release.countDown();
+    producer.join(5000);
+    async.stop();
+
+    assertEquals(List.of("0", "1", "2", "3", "4", "5"), sink.messages);
+    assertEquals(0, async.getDroppedCount());
+  }
+
+  /**
+   * Holds the first event until released, like a stdout that stopped draining.
+   */
+  private static final class StalledAppender extends AppenderBase<ILoggingEvent> {
+    final CountDownLatch entered = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final List<String> messages = new CopyOnWriteArrayList<>();
+
+    @Override
+    protected void append(ILoggingEvent event) {
+      entered.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      messages.add(event.getFormattedMessage());
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package com.datadoghq.workshops.samplejavaapp.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import ch.qos.logback.core.util.Duration;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WarningSamplerTest {
+
+  private final LoggerContext context = new LoggerContext();
+  private final AtomicLong now = new AtomicLong();
+
+  @Test
+  void letsPermitsThroughPerTemplateAndWindow() {
+    WarningSampler sampler = sampler();
+    Logger logger = context.getLogger("app.service.URLValidationService");
+
+    assertEquals(FilterReply.NEUTRAL, warn(sampler, logger, "Blocked URL. host={}"));
+    assertEquals(FilterReply.NEUTRAL, warn(sampler, logger, "Blocked URL. host={}"));
+    assertEquals(FilterReply.DENY, warn(sampler, logger, "Blocked URL. host={}"));
+    // Other templates have windows of their own.
+    assertEquals(FilterReply.NEUTRAL, warn(sampler, logger, "Blocked URL by port. host={}"));
+
+    now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    assertEquals(FilterReply.NEUTRAL, warn(sampler, logger, "Blocked URL. host={}"));
+    assertEquals(1, sampler.getSampledCount());
+  }
+
+  @Test
+  void leavesErrorsAndOtherLoggersAlone() {
+    WarningSampler sampler = sampler();
+    Logger sampled = context.getLogger("app.service.URLValidationService");
+    Logger other = context.getLogger("org.springframework.web");
+
+    for (int i = 0; i < 5; i++) {
+      assertEquals(FilterReply.NEUTRAL, sampler.decide(null, sampled, Level.ERROR, "Failed", null, null));
+      assertEquals(FilterReply.NEUTRAL, warn(sampler, other, "Slow request"));
+    }
+    assertEquals(0, sampler.getSampledCount());
+  }
+
+  private WarningSampler sampler() {
+    WarningSampler sampler = new WarningSampler(now::get);
+    sampler.setContext(context);
+    sampler.addLoggerPrefix("app.service");
+    sampler.setPermits(2);
+    sampler.setInterval(Duration.buildBySeconds(1));
+    sampler.start();
+    return sampler;
+  }
+
+  private static FilterReply warn(WarningSampler sampler, Logger logger, String format) {
+    return sampler.decide(null, logger, Level.WARN, format, null, null);
+  }
+}
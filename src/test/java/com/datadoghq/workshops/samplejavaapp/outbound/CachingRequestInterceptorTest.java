@@ -0,0 +1,213 @@
+package com.datadoghq.workshops.samplejavaapp.outbound;
+
+import com.datadoghq.workshops.samplejavaapp.config.OutboundHttpProperties;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingRequestInterceptorTest {
+
+  private HttpServer server;
+  private final AtomicInteger hits = new AtomicInteger();
+  private final MutableClock clock = new MutableClock(Instant.now());
+  private final AtomicBoolean urlAllowed = new AtomicBoolean(true);
+  private CachingRequestInterceptor interceptor;
+  private RestTemplate rest;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/", exchange -> {
+      int hit = hits.incrementAndGet();
+      String path = exchange.getRequestURI().getPath();
+      Headers headers = exchange.getResponseHeaders();
+      switch (path) {
+        case "/fresh" -> headers.set("Cache-Control", "max-age=60");
+        case "/swr" -> headers.set("Cache-Control", "max-age=1, stale-while-revalidate=60");
+        case "/nostore" -> headers.set("Cache-Control", "no-store");
+        case "/becomes-nostore" -> headers.set("Cache-Control", hit == 1 ? "max-age=1, stale-while-revalidate=60" : "no-store");
+        case "/etag" -> {
+          headers.set("Cache-Control", "no-cache");
+          headers.set("ETag", "\"v1\"");
+          if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+          }
+        }
+        default -> {
+        }
+      }
+      String variant = exchange.getRequestHeaders().getFirst("X-Test");
+      byte[] body = (path.equals("/large") ? "x".repeat(4096) : hit + " " + variant).getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, body.length);
+      exchange.getResponseBody().write(body);
+      exchange.close();
+    });
+    server.start();
+
+    SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+    CachingRequestInterceptor.Revalidation revalidation = new CachingRequestInterceptor.Revalidation(
+        uri -> urlAllowed.get(), new HostCircuitBreakers(new OutboundHttpProperties()), Duration.ofSeconds(5));
+    interceptor = new CachingRequestInterceptor(requestFactory, 64 * 1024, 1024, Runnable::run, revalidation, clock);
+    rest = new RestTemplate(requestFactory);
+    rest.setInterceptors(List.of(interceptor));
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop(0);
+  }
+
+  @Test
+  void freshResponseIsServedFromCacheUntilItExpires() {
+    assertEquals("1 null", get("/fresh", null));
+    assertEquals("1 null", get("/fresh", null));
+    assertEquals(1, hits.get());
+
+    clock.advance(Duration.ofSeconds(61));
+    assertEquals("2 null", get("/fresh", null));
+  }
+
+  @Test
+  void customHeaderIsPartOfTheKey() {
+    assertEquals("1 a", get("/fresh", "a"));
+    assertEquals("2 b", get("/fresh", "b"));
+    assertEquals("1 a", get("/fresh", "a"));
+    assertEquals(2, hits.get());
+  }
+
+  @Test
+  void headerValuesAreNotKeptInTheKey() {
+    assertEquals("1 secret-token", get("/fresh", "secret-token"));
+
+    assertEquals(1, interceptor.entryCount());
+    assertTrue(interceptor.entries().keySet().stream().noneMatch(key -> key.contains("secret-token")));
+  }
+
+  @Test
+  void noCacheResponseIsRevalidatedWithETag() {
+    assertEquals("1 null", get("/etag", null));
+    assertEquals("1 null", get("/etag", null), "a 304 must be answered with the stored body");
+    assertEquals(2, hits.get());
+  }
+
+  @Test
+  void staleWhileRevalidateServesStaleAndRefreshesInBackground() {
+    assertEquals("1 null", get("/swr", null));
+
+    clock.advance(Duration.ofSeconds(5));
+    assertEquals("1 null", get("/swr", null));
+    assertEquals(2, hits.get());
+    assertEquals("2 null", get("/swr", null));
+  }
+
+  @Test
+  void revalidationDropsTheEntryWhenTheNewResponseCannotBeStored() {
+    assertEquals("1 null", get("/becomes-nostore", null));
+
+    clock.advance(Duration.ofSeconds(5));
+    assertEquals("1 null", get("/becomes-nostore", null));
+    assertEquals(2, hits.get());
+    assertEquals(0, interceptor.entryCount(), "the superseded response must not be served again");
+    assertEquals("3 null", get("/becomes-nostore", null));
+  }
+
+  @Test
+  void onlyResponsesServedWithoutContactingTheOriginAreHits() {
+    String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/fresh";
+
+    assertFalse(rest.execute(url, HttpMethod.GET, null, CachingRequestInterceptor::isCacheHit));
+    assertTrue(rest.execute(url, HttpMethod.GET, null, CachingRequestInterceptor::isCacheHit));
+  }
+
+  @Test
+  void backgroundRevalidationDropsEntriesThatNoLongerPassUrlValidation() {
+    assertEquals("1 null", get("/swr", null));
+
+    clock.advance(Duration.ofSeconds(5));
+    urlAllowed.set(false);
+    assertEquals("1 null", get("/swr", null));
+    assertEquals(1, hits.get(), "a URL that fails validation must not be fetched in the background");
+    assertEquals(0, interceptor.entryCount());
+  }
+
+  @Test
+  void bypassedRequestsAreNeitherServedFromNorStoredInTheCache() {
+    try (CachingRequestInterceptor.Scope ignored = CachingRequestInterceptor.bypass()) {
+      assertEquals("1 null", get("/fresh", null));
+      assertEquals("2 null", get("/fresh", null));
+    }
+    assertEquals(0, interceptor.entryCount());
+
+    assertEquals("3 null", get("/fresh", null));
+    assertEquals("3 null", get("/fresh", null));
+  }
+
+  @Test
+  void noStoreAndOversizedResponsesAreNotCached() {
+    get("/nostore", null);
+    get("/nostore", null);
+    assertEquals(2, hits.get());
+
+    assertEquals(4096, get("/large", null).length());
+    assertEquals(0, interceptor.entryCount());
+  }
+
+  private String get(String path, String variant) {
+    HttpHeaders headers = new HttpHeaders();
+    if (variant != null) {
+      headers.set("X-Test", variant);
+    }
+    String url = "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    return rest.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class).getBody();
+  }
+
+  private static final class MutableClock extends Clock {
+    private Instant now;
+
+    MutableClock(Instant now) {
+      this.now = now;
+    }
+
+    void advance(Duration duration) {
+      now = now.plus(duration);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return this;
+    }
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package com.datadoghq.workshops.samplejavaapp.outbound;
+
+import com.datadoghq.workshops.samplejavaapp.exception.DeadlineExceededException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadlineTest {
+
+  private final AtomicLong now = new AtomicLong();
+
+  @Test
+  void capsStageTimeoutsAtTheTimeLeft() {
+    Deadline deadline = Deadline.after(Duration.ofSeconds(3), now::get);
+
+    assertEquals(Duration.ofSeconds(2), deadline.cap(Duration.ofSeconds(2)));
+    now.addAndGet(Duration.ofSeconds(2).toNanos());
+    assertEquals(Duration.ofSeconds(1), deadline.cap(Duration.ofSeconds(2)));
+    assertEquals(Duration.ofSeconds(1), deadline.remaining());
+  }
+
+  @Test
+  void reportsTheStageOnceSpent() {
+    Deadline deadline = Deadline.after(Duration.ofSeconds(1), now::get);
+    deadline.check(DeadlineExceededException.Stage.DNS);
+
+    now.addAndGet(Duration.ofSeconds(1).toNanos());
+
+    assertTrue(deadline.isExpired());
+    assertEquals(Duration.ZERO, deadline.remaining());
+    assertEquals(Duration.ofMillis(1), deadline.cap(Duration.ofSeconds(5)), "never zero, which means no timeout");
+    DeadlineExceededException e = assertThrows(DeadlineExceededException.class,
+        () -> deadline.check(DeadlineExceededException.Stage.CONNECT));
+    assertEquals(DeadlineExceededException.Stage.CONNECT, e.getStage());
+  }
+
+  @Test
+  void activeOnlyWithinItsScope() {
+    Deadline deadline = Deadline.after(Duration.ofSeconds(1), now::get);
+    assertSame(Deadline.unbounded(), Deadline.current());
+
+    try (Deadline.Scope ignored = deadline.activate()) {
+      assertSame(deadline, Deadline.current());
+    }
+
+    assertSame(Deadline.unbounded(), Deadline.current());
+    assertFalse(Deadline.unbounded().isExpired());
+    assertEquals(Duration.ofSeconds(5), Deadline.unbounded().cap(Duration.ofSeconds(5)));
+  }
+}
@@ -0,0 +1,104 @@
+package com.datadoghq.workshops.samplejavaapp.outbound;
+
+import com.datadoghq.workshops.samplejavaapp.config.OutboundHttpProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HappyEyeballsConnectorTest {
+
+  private ServerSocket server;
+  private final HappyEyeballsConnector connector = new HappyEyeballsConnector(Duration.ofMillis(50));
+
+  @BeforeEach
+  void setUp() throws IOException {
+    server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    server.close();
+  }
+
+  @Test
+  void deadFirstAddressCostsOnlyTheAttemptDelay() throws Exception {
+    InetAddress dead = InetAddress.getByName("127.0.0.2");
+    long start = System.nanoTime();
+
+    try (Socket socket = connector.connect(List.of(dead, InetAddress.getLoopbackAddress()), server.getLocalPort(),
+        null, Duration.ofSeconds(5), () -> new BlackholeSocket(dead))) {
+      assertTrue(socket.isConnected());
+      assertEquals(InetAddress.getLoopbackAddress(), socket.getInetAddress());
+    }
+    assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 2000);
+  }
+
+  @Test
+  void failsWithTheLastErrorWhenEveryAddressRefuses() throws Exception {
+    int port = server.getLocalPort();
+    server.close();
+
+    assertThrows(IOException.class, () -> connector.connect(
+        List.of(InetAddress.getLoopbackAddress(), InetAddress.getByName("127.0.0.2")), port, null,
+        Duration.ofSeconds(5), Socket::new));
+  }
+
+  @Test
+  void vettedAddressesPreferIpv6AndAlternateFamilies() throws Exception {
+    InetAddress v4a = InetAddress.getByName("93.184.216.34");
+    InetAddress v4b = InetAddress.getByName("93.184.216.35");
+    InetAddress v6a = InetAddress.getByName("2606:2800:220:1::1");
+    InetAddress v6b = InetAddress.getByName("2606:2800:220:1::2");
+
+    VettedAddresses vetted = new VettedAddresses(new OutboundHttpProperties());
+    vetted.remember("Example.com", new InetAddress[]{v4a, v4b, v6a, v6b});
+
+    assertEquals(List.of(v6a, v4a, v6b, v4b), vetted.candidates("example.com"));
+    assertArrayEquals(new InetAddress[]{v6a}, vetted.resolve("example.com"));
+    assertEquals(List.of(), vetted.candidates("other.example.com"));
+  }
+
+  /**
+   * Behaves like a host that never answers: connecting to the given address blocks until the socket is closed.
+   */
+  private static final class BlackholeSocket extends Socket {
+    private final InetAddress dead;
+    private final CountDownLatch closed = new CountDownLatch(1);
+
+    BlackholeSocket(InetAddress dead) {
+      this.dead = dead;
+    }
+
+    @Override
+    public void connect(SocketAddress endpoint, int timeout) throws IOException {
+      if (endpoint instanceof InetSocketAddress target && target.getAddress().equals(dead)) {
+        try {
+          closed.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        throw new SocketException("Socket closed");
+      }
+      super.connect(endpoint, timeout);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+      closed.countDown();
+      super.close();
+    }
+  }
+}
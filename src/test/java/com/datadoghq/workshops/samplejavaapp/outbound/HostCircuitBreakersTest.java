@@ -0,0 +1,156 @@
+package com.datadoghq.workshops.samplejavaapp.outbound;
+
+import com.datadoghq.workshops.samplejavaapp.config.OutboundHttpProperties;
+import com.datadoghq.workshops.samplejavaapp.exception.HostUnavailableException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HostCircuitBreakersTest {
+
+  private final AtomicLong now = new AtomicLong();
+  private HostCircuitBreakers breakers;
+
+  @BeforeEach
+  void setUp() {
+    OutboundHttpProperties props = new OutboundHttpProperties();
+    props.getCircuitBreaker().setSlidingWindowSize(4);
+    props.getCircuitBreaker().setMinimumCalls(4);
+    props.getCircuitBreaker().setFailureRateThreshold(50);
+    props.getCircuitBreaker().setSlowCallRateThreshold(100);
+    props.getCircuitBreaker().setSlowCallDuration(Duration.ofSeconds(1));
+    props.getCircuitBreaker().setWaitInOpen(Duration.ofSeconds(10));
+    props.getCircuitBreaker().setPermittedCallsInHalfOpen(2);
+    props.getBulkhead().setMaxConcurrentCallsPerHost(2);
+    breakers = new HostCircuitBreakers(props, now::get);
+  }
+
+  @Test
+  void opensOnFailureRateAndOnlyForThatHost() {
+    call("a.example", 200);
+    call("a.example", 500);
+    call("a.example", 200);
+    call("a.example", 503);
+
+    HostUnavailableException e = assertThrows(HostUnavailableException.class, () -> breakers.acquire("a.example"));
+    assertEquals(HostUnavailableException.Reason.CIRCUIT_OPEN, e.getReason());
+    assertEquals("OPEN", breakers.states().get("a.example").state());
+    breakers.acquire("b.example").close();
+  }
+
+  @Test
+  void opensOnSlowCallRate() {
+    for (int i = 0; i < 4; i++) {
+      HostCircuitBreakers.Permit permit = breakers.acquire("a.example");
+      now.addAndGet(Duration.ofSeconds(2).toNanos());
+      permit.recordResponse(200);
+      permit.close();
+    }
+
+    assertThrows(HostUnavailableException.class, () -> breakers.acquire("a.example"));
+  }
+
+  @Test
+  void halfOpenClosesAfterSuccessfulTrialCalls() {
+    for (int i = 0; i < 4; i++) {
+      call("a.example", 500);
+    }
+    now.addAndGet(Duration.ofSeconds(11).toNanos());
+
+    HostCircuitBreakers.Permit first = breakers.acquire("a.example");
+    HostCircuitBreakers.Permit second = breakers.acquire("a.example");
+    assertEquals("HALF_OPEN", breakers.states().get("a.example").state());
+    assertThrows(HostUnavailableException.class, () -> breakers.acquire("a.example"), "only two trial calls");
+
+    first.recordResponse(200);
+    first.close();
+    second.recordResponse(204);
+    second.close();
+    assertEquals("CLOSED", breakers.states().get("a.example").state());
+  }
+
+  @Test
+  void halfOpenReopensWhenTrialCallsFail() {
+    for (int i = 0; i < 4; i++) {
+      call("a.example", 500);
+    }
+    now.addAndGet(Duration.ofSeconds(11).toNanos());
+
+    breakers.acquire("a.example").close();
+    call("a.example", 200);
+
+    assertEquals("OPEN", breakers.states().get("a.example").state());
+  }
+
+  @Test
+  void bulkheadRejectsWithoutCountingAgainstTheHost() {
+    HostCircuitBreakers.Permit first = breakers.acquire("a.example");
+    HostCircuitBreakers.Permit second = breakers.acquire("a.example");
+
+    HostUnavailableException e = assertThrows(HostUnavailableException.class, () -> breakers.acquire("a.example"));
+    assertEquals(HostUnavailableException.Reason.BULKHEAD_FULL, e.getReason());
+    assertEquals(2, breakers.states().get("a.example").inFlight());
+    assertEquals(0, breakers.states().get("a.example").bufferedCalls());
+
+    first.close();
+    second.close();
+    breakers.acquire("a.example").close();
+  }
+
+  @Test
+  void abandonedCallsAreNotCounted() {
+    for (int i = 0; i < 4; i++) {
+      try (HostCircuitBreakers.Permit permit = breakers.acquire("a.example")) {
+        permit.recordAbandoned();
+      }
+    }
+
+    assertEquals(0, breakers.states().get("a.example").bufferedCalls());
+    assertEquals("CLOSED", breakers.states().get("a.example").state());
+  }
+
+  @Test
+  void forgetsTheLeastRecentlyUsedIdleHostsBeyondMaxHosts() {
+    OutboundHttpProperties props = new OutboundHttpProperties();
+    props.getCircuitBreaker().setMaxHosts(3);
+    breakers = new HostCircuitBreakers(props, now::get);
+    HostCircuitBreakers.Permit busy = breakers.acquire("busy.example");
+    for (String host : new String[]{"a.example", "b.example", "c.example"}) {
+      now.addAndGet(1);
+      call(host, 200);
+    }
+
+    assertEquals(3, breakers.hostCount());
+    assertFalse(breakers.states().containsKey("a.example"), "least recently used idle host goes first");
+    assertTrue(breakers.states().containsKey("busy.example"), "a host with a call in flight is kept");
+    busy.close();
+    breakers.acquire("a.example").close();
+  }
+
+  @Test
+  void keepsHostsWhoseBreakerIsOpen() {
+    OutboundHttpProperties props = new OutboundHttpProperties();
+    props.getCircuitBreaker().setSlidingWindowSize(4);
+    props.getCircuitBreaker().setMinimumCalls(4);
+    props.getCircuitBreaker().setMaxHosts(1);
+    breakers = new HostCircuitBreakers(props, now::get);
+    for (int i = 0; i < 4; i++) {
+      call("a.example", 500);
+    }
+
+    call("b.example", 200);
+
+    assertEquals("OPEN", breakers.states().get("a.example").state());
+    assertThrows(HostUnavailableException.class, () -> breakers.acquire("a.example"));
+  }
+
+  private void call(String host, int status) {
+    try (HostCircuitBreakers.Permit permit = breakers.acquire(host)) {
+      permit.recordResponse(status);
+    }
+  }
+}
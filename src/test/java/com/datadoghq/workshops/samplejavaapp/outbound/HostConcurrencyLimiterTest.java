@@ -0,0 +1,87 @@
+package com.datadoghq.workshops.samplejavaapp.outbound;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HostConcurrencyLimiterTest {
+
+  @Test
+  void perHostCapQueuesWithoutBlockingOtherHosts() {
+    HostConcurrencyLimiter limiter = new HostConcurrencyLimiter(10, 1, 10);
+
+    CompletableFuture<Runnable> first = limiter.acquire("a.example");
+    CompletableFuture<Runnable> second = limiter.acquire("a.example");
+    CompletableFuture<Runnable> other = limiter.acquire("b.example");
+
+    assertTrue(first.isDone());
+    assertFalse(second.isDone());
+    assertTrue(other.isDone(), "a busy host must not hold up other hosts");
+
+    first.join().run();
+    assertTrue(second.isDone());
+    assertEquals(2, limiter.inFlight());
+  }
+
+  @Test
+  void globalCapIsShared() {
+    HostConcurrencyLimiter limiter = new HostConcurrencyLimiter(2, 2, 10);
+
+    CompletableFuture<Runnable> a = limiter.acquire("a.example");
+    limiter.acquire("b.example");
+    CompletableFuture<Runnable> c = limiter.acquire("c.example");
+
+    assertFalse(c.isDone());
+    assertEquals(1, limiter.waiting());
+
+    a.join().run();
+    assertTrue(c.isDone());
+    assertEquals(0, limiter.waiting());
+  }
+
+  @Test
+  void releasingTwiceFreesOnePermit() {
+    HostConcurrencyLimiter limiter = new HostConcurrencyLimiter(1, 1, 10);
+
+    Runnable release = limiter.acquire("a.example").join();
+    release.run();
+    release.run();
+
+    limiter.acquire("a.example");
+    assertFalse(limiter.acquire("a.example").isDone());
+    assertEquals(1, limiter.inFlight());
+  }
+
+  @Test
+  void rejectsOnceTheWaitingQueueIsFull() {
+    HostConcurrencyLimiter limiter = new HostConcurrencyLimiter(1, 1, 1);
+
+    limiter.acquire("a.example");
+    CompletableFuture<Runnable> queued = limiter.acquire("a.example");
+    CompletableFuture<Runnable> rejected = limiter.acquire("b.example");
+
+    assertFalse(queued.isDone());
+    ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+    assertInstanceOf(RejectedExecutionException.class, e.getCause());
+    assertEquals(1, limiter.waiting());
+  }
+
+  @Test
+  void cancelledWaiterGivesUpItsPlace() {
+    HostConcurrencyLimiter limiter = new HostConcurrencyLimiter(1, 1, 10);
+
+    Runnable release = limiter.acquire("a.example").join();
+    CompletableFuture<Runnable> cancelled = limiter.acquire("a.example");
+    CompletableFuture<Runnable> next = limiter.acquire("a.example");
+    cancelled.cancel(false);
+
+    assertEquals(1, limiter.waiting());
+    release.run();
+    assertTrue(next.isDone());
+    assertEquals(1, limiter.inFlight());
+  }
+}
@@ -0,0 +1,102 @@
+package com.datadoghq.workshops.samplejavaapp.outbound;
+
+import com.datadoghq.workshops.samplejavaapp.config.OutboundHttpProperties;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboundHttpClientFactoryTest {
+
+  private HttpServer server;
+  private SimpleMeterRegistry registry;
+  private PoolingHttpClientConnectionManager connectionManager;
+  private CloseableHttpClient client;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/ok", exchange -> {
+      byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, body.length);
+      exchange.getResponseBody().write(body);
+      exchange.close();
+    });
+    server.createContext("/redirect", exchange -> {
+      exchange.getResponseHeaders().add("Location", "/ok");
+      exchange.sendResponseHeaders(302, -1);
+      exchange.close();
+    });
+    server.start();
+
+    registry = new SimpleMeterRegistry();
+    OutboundHttpProperties props = new OutboundHttpProperties();
+    VettedAddresses vettedAddresses = new VettedAddresses(props);
+    vettedAddresses.remember("127.0.0.1", new InetAddress[]{InetAddress.getLoopbackAddress()});
+    OutboundHttpClientFactory factory =
+        new OutboundHttpClientFactory(props, new OutboundConnectionMetrics(registry), registry, vettedAddresses);
+    connectionManager = factory.connectionManager();
+    client = factory.httpClient(connectionManager);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    client.close();
+    server.stop(0);
+  }
+
+  @Test
+  void reusesKeepAliveConnectionsForTheSameHost() throws Exception {
+    assertEquals("ok", get("/ok"));
+    assertEquals("ok", get("/ok"));
+    assertEquals("ok", get("/ok"));
+
+    assertEquals(3, registry.get("outbound.http.requests").counter().count());
+    assertEquals(1, registry.get("outbound.http.connections.opened").tag("scheme", "http").counter().count());
+    assertEquals(2.0 / 3, registry.get("outbound.http.connections.reuse.ratio").gauge().value(), 1e-9);
+  }
+
+  @Test
+  void doesNotFollowRedirects() throws Exception {
+    int status = client.execute(new HttpGet(url("/redirect")), response -> {
+      EntityUtils.consume(response.getEntity());
+      return response.getCode();
+    });
+
+    assertEquals(302, status);
+  }
+
+  @Test
+  void refusesToConnectToAHostThatWasNotVetted() {
+    String unvetted = "http://localhost:" + server.getAddress().getPort() + "/ok";
+
+    assertThrows(UnknownHostException.class, () -> client.execute(new HttpGet(unvetted), response -> null));
+    assertEquals(0, registry.get("outbound.http.connections.opened").tag("scheme", "http").counter().count());
+  }
+
+  @Test
+  void appliesPerHostPoolLimit() {
+    assertEquals(new OutboundHttpProperties().getMaxConnectionsPerHost(), connectionManager.getDefaultMaxPerRoute());
+    assertNotNull(registry.find("httpcomponents.httpclient.pool.total.connections").gauge());
+  }
+
+  private String get(String path) throws Exception {
+    return client.execute(new HttpGet(url(path)), response -> EntityUtils.toString(response.getEntity()));
+  }
+
+  private String url(String path) {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+  }
+}
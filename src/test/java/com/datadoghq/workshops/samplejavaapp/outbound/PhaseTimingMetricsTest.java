@@ -0,0 +1,66 @@
+package com.datadoghq.workshops.samplejavaapp.outbound;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhaseTimingMetricsTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final PhaseTimingMetrics metrics = new PhaseTimingMetrics(registry);
+
+  @Test
+  void recordsEachMeasuredPhaseUnderTheHostTag() {
+    PhaseTimings timings = new PhaseTimings();
+    timings.add(PhaseTimings.Phase.DOWNLOAD, TimeUnit.MILLISECONDS.toNanos(5));
+
+    metrics.record("Example.com", timings);
+    metrics.record("example.com", timings);
+
+    Timer download = registry.get("website.test.phase").tags("host", "example.com", "phase", "download").timer();
+    assertEquals(2, download.count());
+    assertEquals(10, download.totalTime(TimeUnit.MILLISECONDS), 0.001);
+  }
+
+  @Test
+  void hostsBeyondTheCapAreReportedAsOtherEvenUnderConcurrency() throws Exception {
+    PhaseTimings timings = new PhaseTimings();
+    timings.add(PhaseTimings.Phase.DOWNLOAD, 1);
+    int hosts = PhaseTimingMetrics.MAX_HOSTS * 3;
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService threads = Executors.newFixedThreadPool(8);
+    for (int i = 0; i < hosts; i++) {
+      String host = "h" + i + ".example.com";
+      threads.execute(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        metrics.record(host, timings);
+      });
+    }
+    start.countDown();
+    threads.shutdown();
+    assertTrue(threads.awaitTermination(10, TimeUnit.SECONDS));
+
+    Set<String> tags = registry.get("website.test.phase").tags("phase", "download").timers().stream()
+        .map(timer -> timer.getId().getTag("host"))
+        .collect(Collectors.toSet());
+    assertEquals(PhaseTimingMetrics.MAX_HOSTS + 1, tags.size());
+    assertTrue(tags.contains(PhaseTimingMetrics.OTHER_HOST));
+    long total = registry.get("website.test.phase").tags("phase", "download").timers().stream()
+        .mapToLong(Timer::count)
+        .sum();
+    assertEquals(hosts, total);
+  }
+}
@@ -0,0 +1,127 @@
+package com.datadoghq.workshops.samplejavaapp.outbound;
+
+import com.datadoghq.workshops.samplejavaapp.config.OutboundHttpProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WarmStateSnapshotTest {
+
+  private static final Instant SAVED_AT = Instant.parse("2024-05-01T12:00:00Z");
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void restoresWhatIsStillUsableAfterARestart() throws Exception {
+    InetAddress v4 = InetAddress.getByName("93.184.216.34");
+    InetAddress v6 = InetAddress.getByName("2606:2800:220:1::1");
+    OutboundHttpProperties props = props();
+
+    AtomicLong nanos = new AtomicLong();
+    VettedAddresses vetted = new VettedAddresses(props, nanos::get);
+    vetted.remember("old.example.com", new InetAddress[]{v4});
+    nanos.addAndGet(Duration.ofMinutes(4).toNanos());
+    vetted.remember("Example.com", new InetAddress[]{v4, v6});
+    CachingRequestInterceptor cache = interceptor(SAVED_AT);
+    assertTrue(cache.restore("fresh", response(SAVED_AT, "Cache-Control", "max-age=600")));
+    assertTrue(cache.restore("stale", response(SAVED_AT, "Cache-Control", "max-age=60")));
+    assertTrue(cache.restore("validated", response(SAVED_AT, "ETag", "\"v1\"")));
+    new WarmStateSnapshot(props, vetted, cache, Clock.fixed(SAVED_AT, ZoneOffset.UTC)).save();
+
+    // Two minutes later: the 1 minute left on old.example.com and the 60s response without a validator are gone.
+    Instant restartedAt = SAVED_AT.plus(Duration.ofMinutes(2));
+    VettedAddresses restoredVetted = new VettedAddresses(props, () -> 0L);
+    CachingRequestInterceptor restoredCache = interceptor(restartedAt);
+    new WarmStateSnapshot(props, restoredVetted, restoredCache, Clock.fixed(restartedAt, ZoneOffset.UTC)).restore();
+
+    assertEquals(List.of(v6, v4), restoredVetted.restored("example.com"));
+    assertEquals(List.of(v6, v4), restoredVetted.candidates("example.com"));
+    assertEquals(List.of(), restoredVetted.candidates("old.example.com"));
+    assertEquals(List.of("fresh", "validated"), List.copyOf(restoredCache.entries().keySet()));
+    ResponseCache.Entry fresh = restoredCache.entries().get("fresh");
+    assertEquals(200, fresh.status());
+    assertEquals("max-age=600", fresh.headers().getFirst("Cache-Control"));
+    assertArrayEquals("hello".getBytes(StandardCharsets.UTF_8), fresh.body());
+    assertEquals(SAVED_AT, fresh.responseTime());
+  }
+
+  @Test
+  void addressesVettedSinceTheRestartWinOverTheSnapshot() throws Exception {
+    InetAddress saved = InetAddress.getByName("93.184.216.34");
+    InetAddress live = InetAddress.getByName("93.184.216.35");
+    OutboundHttpProperties props = props();
+
+    VettedAddresses vetted = new VettedAddresses(props, () -> 0L);
+    vetted.remember("example.com", new InetAddress[]{saved});
+    new WarmStateSnapshot(props, vetted, interceptor(SAVED_AT), Clock.fixed(SAVED_AT, ZoneOffset.UTC)).save();
+
+    VettedAddresses restored = new VettedAddresses(props, () -> 0L);
+    restored.remember("example.com", new InetAddress[]{live});
+    new WarmStateSnapshot(props, restored, interceptor(SAVED_AT), Clock.fixed(SAVED_AT, ZoneOffset.UTC)).restore();
+
+    assertEquals(List.of(live), restored.candidates("example.com"));
+    assertEquals(List.of(), restored.restored("example.com"));
+  }
+
+  @Test
+  void truncatedSnapshotIsRejected() throws Exception {
+    OutboundHttpProperties props = props();
+    VettedAddresses vetted = new VettedAddresses(props, () -> 0L);
+    vetted.remember("example.com", new InetAddress[]{InetAddress.getByName("93.184.216.34")});
+    new WarmStateSnapshot(props, vetted, interceptor(SAVED_AT), Clock.fixed(SAVED_AT, ZoneOffset.UTC)).save();
+
+    Path path = props.getSnapshot().getPath();
+    byte[] bytes = Files.readAllBytes(path);
+    Files.write(path, Arrays.copyOf(bytes, bytes.length - 3));
+
+    assertThrows(IOException.class, () -> SnapshotFile.read(path, new SnapshotFile.Visitor() {
+      @Override
+      public void addresses(String host, List<InetAddress> addresses, Instant expiresAt) {
+      }
+
+      @Override
+      public void response(String key, ResponseCache.Entry entry) {
+      }
+    }));
+    VettedAddresses restored = new VettedAddresses(props, () -> 0L);
+    new WarmStateSnapshot(props, restored, interceptor(SAVED_AT), Clock.fixed(SAVED_AT, ZoneOffset.UTC)).restore();
+    assertEquals(List.of(), restored.candidates("example.com"));
+  }
+
+  private OutboundHttpProperties props() {
+    OutboundHttpProperties props = new OutboundHttpProperties();
+    props.getSnapshot().setEnabled(true);
+    props.getSnapshot().setPath(dir.resolve("state/warm-state.snapshot"));
+    return props;
+  }
+
+  private static CachingRequestInterceptor interceptor(Instant now) {
+    CachingRequestInterceptor.Revalidation revalidation = new CachingRequestInterceptor.Revalidation(
+        uri -> true, new HostCircuitBreakers(new OutboundHttpProperties()), Duration.ofSeconds(5));
+    return new CachingRequestInterceptor(new SimpleClientHttpRequestFactory(), 64 * 1024, 1024, Runnable::run,
+        revalidation, Clock.fixed(now, ZoneOffset.UTC));
+  }
+
+  private static ResponseCache.Entry response(Instant at, String header, String value) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(header, value);
+    return new ResponseCache.Entry(200, "OK", headers, "hello".getBytes(StandardCharsets.UTF_8), at, at);
+  }
+}
@@ -0,0 +1,251 @@
+package com.datadoghq.workshops.samplejavaapp.service;
+
+import com.datadoghq.workshops.samplejavaapp.config.URLValidationProperties;
+import com.datadoghq.workshops.samplejavaapp.exception.InvalidURLException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncDnsHostResolverTest {
+
+  private StubDnsServer dns;
+  private ExecutorService executor;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    dns = new StubDnsServer();
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @AfterEach
+  void tearDown() {
+    dns.close();
+    executor.shutdownNow();
+  }
+
+  @Test
+  void resolveAllByName_returnsBothIpv4AndIpv6Records() throws Exception {
+    dns.answer("example.com", StubDnsServer.TYPE_A, "93.184.216.34");
+    dns.answer("example.com", StubDnsServer.TYPE_AAAA, "2606:2800:220:1:248:1893:25c8:1946");
+
+    InetAddress[] resolved = resolver(Duration.ofSeconds(2)).resolveAllByName("example.com");
+
+    List<InetAddress> expected = List.of(
+        InetAddress.getByName("93.184.216.34"),
+        InetAddress.getByName("2606:2800:220:1:248:1893:25c8:1946"));
+    assertEquals(expected, Arrays.asList(resolved));
+  }
+
+  @Test
+  void resolveAllByName_queriesARecordsAndAaaaRecordsInParallel() throws Exception {
+    dns.answer("example.com", StubDnsServer.TYPE_A, "93.184.216.34");
+    dns.answer("example.com", StubDnsServer.TYPE_AAAA, "2606:2800:220:1:248:1893:25c8:1946");
+    dns.delay(StubDnsServer.TYPE_A, 400);
+    dns.delay(StubDnsServer.TYPE_AAAA, 400);
+
+    long start = System.nanoTime();
+    resolver(Duration.ofSeconds(2)).resolveAllByName("example.com");
+    long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+    assertTrue(elapsedMs < 750, "lookups should overlap, took " + elapsedMs + "ms");
+  }
+
+  @Test
+  void resolveAllByName_acceptsHostsWithoutIpv6Records() throws Exception {
+    dns.answer("example.com", StubDnsServer.TYPE_A, "93.184.216.34");
+
+    InetAddress[] resolved = resolver(Duration.ofSeconds(2)).resolveAllByName("example.com");
+
+    assertArrayEquals(new InetAddress[]{InetAddress.getByName("93.184.216.34")}, resolved);
+  }
+
+  @Test
+  void resolveAllByName_failsForNxdomain() {
+    assertThrows(UnknownHostException.class, () -> resolver(Duration.ofSeconds(2)).resolveAllByName("missing.example.com"));
+  }
+
+  @Test
+  void resolveAllByName_failsClosedWhenOneRecordTypeMissesTheDeadline() {
+    dns.answer("example.com", StubDnsServer.TYPE_A, "93.184.216.34");
+    dns.answer("example.com", StubDnsServer.TYPE_AAAA, "2606:2800:220:1:248:1893:25c8:1946");
+    dns.delay(StubDnsServer.TYPE_AAAA, 3_000);
+
+    long start = System.nanoTime();
+    assertThrows(UnknownHostException.class, () -> resolver(Duration.ofMillis(300)).resolveAllByName("example.com"));
+    long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+    assertTrue(elapsedMs < 1_000, "deadline should bound the lookup, took " + elapsedMs + "ms");
+  }
+
+  @Test
+  void resolveAllByName_doesNotQueryDnsForIpLiterals() throws Exception {
+    InetAddress[] resolved = resolver(Duration.ofSeconds(2)).resolveAllByName("93.184.216.34");
+
+    assertArrayEquals(new InetAddress[]{InetAddress.getByName("93.184.216.34")}, resolved);
+    assertEquals(0, dns.queries());
+  }
+
+  @Test
+  void validateURL_reportsUnresolvableHostWhenDnsIsTooSlow() {
+    dns.answer("example.com", StubDnsServer.TYPE_A, "93.184.216.34");
+    dns.delay(StubDnsServer.TYPE_A, 3_000);
+
+    URLValidationProperties props = new URLValidationProperties();
+    props.getWhitelist().setDomains(List.of("example.com"));
+    URLValidationService svc = new URLValidationService(props, resolver(Duration.ofMillis(300)));
+
+    InvalidURLException ex = assertThrows(InvalidURLException.class, () -> svc.validateURL("https://example.com"));
+    assertEquals(InvalidURLException.Reason.UNRESOLVABLE_HOST, ex.getReason());
+  }
+
+  private AsyncDnsHostResolver resolver(Duration timeout) {
+    return new AsyncDnsHostResolver(List.of("127.0.0.1:" + dns.port()), timeout, executor);
+  }
+
+  /**
+   * Minimal UDP DNS server answering A/AAAA questions from a static table. Unknown names get NXDOMAIN.
+   */
+  static final class StubDnsServer implements AutoCloseable {
+    static final int TYPE_A = 1;
+    static final int TYPE_AAAA = 28;
+
+    private final DatagramSocket socket;
+    private final Map<String, List<InetAddress>> records = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> delaysMs = new ConcurrentHashMap<>();
+    private final AtomicInteger queries = new AtomicInteger();
+    private final ExecutorService workers = Executors.newCachedThreadPool();
+
+    StubDnsServer() throws SocketException, UnknownHostException {
+      socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+      Thread listener = new Thread(this::serve, "stub-dns");
+      listener.setDaemon(true);
+      listener.start();
+    }
+
+    int port() {
+      return socket.getLocalPort();
+    }
+
+    int queries() {
+      return queries.get();
+    }
+
+    void answer(String name, int type, String address) {
+      try {
+        records.computeIfAbsent(key(name, type), k -> new CopyOnWriteArrayList<>())
+            .add(InetAddress.getByName(address));
+      } catch (UnknownHostException e) {
+        throw new IllegalArgumentException(address, e);
+      }
+    }
+
+    void delay(int type, int millis) {
+      delaysMs.put(type, millis);
+    }
+
+    @Override
+    public void close() {
+      socket.close();
+      workers.shutdownNow();
+    }
+
+    private void serve() {
+      byte[] buf = new byte[512];
+      while (!socket.isClosed()) {
+        DatagramPacket packet = new DatagramPacket(buf, buf.length);
+        try {
+          socket.receive(packet);
+        } catch (Exception e) {
+          return;
+        }
+        byte[] query = Arrays.copyOf(packet.getData(), packet.getLength());
+        InetAddress client = packet.getAddress();
+        int clientPort = packet.getPort();
+        queries.incrementAndGet();
+        // Reply off the listener thread so a delayed answer doesn't hold up the parallel query.
+        workers.submit(() -> reply(query, client, clientPort));
+      }
+    }
+
+    private void reply(byte[] query, InetAddress client, int clientPort) {
+      try {
+        ByteBuffer in = ByteBuffer.wrap(query);
+        short id = in.getShort(0);
+        int pos = 12;
+        StringBuilder name = new StringBuilder();
+        while (query[pos] != 0) {
+          int len = query[pos] & 0xFF;
+          if (!name.isEmpty()) {
+            name.append('.');
+          }
+          name.append(new String(query, pos + 1, len, StandardCharsets.US_ASCII));
+          pos += len + 1;
+        }
+        int questionEnd = pos + 5; // zero label + qtype + qclass
+        int type = in.getShort(pos + 1) & 0xFFFF;
+
+        Integer delay = delaysMs.get(type);
+        if (delay != null) {
+          Thread.sleep(delay);
+        }
+
+        String qname = name.toString().toLowerCase(Locale.ROOT);
+        boolean known = records.keySet().stream().anyMatch(k -> k.startsWith(qname + "/"));
+        List<InetAddress> answers = records.getOrDefault(key(qname, type), List.of());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteBuffer header = ByteBuffer.allocate(12);
+        header.putShort(id);
+        header.putShort((short) (known ? 0x8180 : 0x8183)); // response, RD+RA, NOERROR or NXDOMAIN
+        header.putShort((short) 1);
+        header.putShort((short) answers.size());
+        header.putShort((short) 0);
+        header.putShort((short) 0);
+        out.write(header.array());
+        out.write(query, 12, questionEnd - 12);
+        for (InetAddress addr : answers) {
+          byte[] rdata = addr.getAddress();
+          ByteBuffer rr = ByteBuffer.allocate(12 + rdata.length);
+          rr.putShort((short) 0xC00C); // pointer to the question name
+          rr.putShort((short) type);
+          rr.putShort((short) 1); // IN
+          rr.putInt(60);
+          rr.putShort((short) rdata.length);
+          rr.put(rdata);
+          out.write(rr.array());
+        }
+        byte[] response = out.toByteArray();
+        socket.send(new DatagramPacket(response, response.length, client, clientPort));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (Exception ignored) {
+        // Socket closed while the test tears down.
+      }
+    }
+
+    private static String key(String name, int type) {
+      return name.toLowerCase(Locale.ROOT) + "/" + type;
+    }
+  }
+}
@@ -0,0 +1,267 @@
+package com.datadoghq.workshops.samplejavaapp.service;
+
+import com.datadoghq.workshops.samplejavaapp.config.OutboundHttpProperties;
+import com.datadoghq.workshops.samplejavaapp.config.WebsiteTestProperties;
+import com.datadoghq.workshops.samplejavaapp.exception.DeadlineExceededException;
+import com.datadoghq.workshops.samplejavaapp.exception.InvalidURLException;
+import com.datadoghq.workshops.samplejavaapp.http.WebsiteTestRequest;
+import com.datadoghq.workshops.samplejavaapp.outbound.AbortOnEarlyCloseRequestFactory;
+import com.datadoghq.workshops.samplejavaapp.outbound.Deadline;
+import com.datadoghq.workshops.samplejavaapp.outbound.OutboundConnectionMetrics;
+import com.datadoghq.workshops.samplejavaapp.outbound.OutboundHttpClientFactory;
+import com.datadoghq.workshops.samplejavaapp.outbound.VettedAddresses;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.util.unit.DataSize;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AsyncWebsiteTestServiceTest {
+
+  private HttpServer server;
+  private final AtomicInteger requests = new AtomicInteger();
+  private final AtomicInteger active = new AtomicInteger();
+  private final AtomicInteger maxActive = new AtomicInteger();
+  private ExecutorService serverThreads;
+  private OutboundHttpProperties outboundProps;
+  private VettedAddresses vettedAddresses;
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private URLValidationService validation;
+  private CloseableHttpClient client;
+  private AsyncWebsiteTestService service;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 512);
+    server.createContext("/", exchange -> {
+      requests.incrementAndGet();
+      String path = exchange.getRequestURI().getPath();
+      active.incrementAndGet();
+      try {
+        if (path.equals("/slow")) {
+          Thread.sleep(2000);
+        } else if (path.equals("/trickle")) {
+          // Half the body, then a pause: the reader is left waiting with its buffer taken from the budget.
+          exchange.sendResponseHeaders(200, 1024);
+          exchange.getResponseBody().write(new byte[512]);
+          exchange.getResponseBody().flush();
+          Thread.sleep(1000);
+          exchange.getResponseBody().write(new byte[512]);
+          exchange.close();
+          return;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        maxActive.accumulateAndGet(active.getAndDecrement(), Math::max);
+      }
+      byte[] body = (path.equals("/large") ? "x".repeat(64 * 1024) : "hello " + exchange.getRequestHeaders().getFirst("X-Test"))
+          .getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(path.equals("/missing") ? 404 : 200, body.length);
+      exchange.getResponseBody().write(body);
+      exchange.close();
+    });
+    serverThreads = Executors.newCachedThreadPool();
+    server.setExecutor(serverThreads);
+    server.start();
+
+    validation = mock(URLValidationService.class);
+    WebsiteTestProperties websiteProps = new WebsiteTestProperties();
+    websiteProps.setMaxBodySize(DataSize.ofBytes(1024));
+    websiteProps.setAsyncBufferBudget(DataSize.ofBytes(1024));
+    outboundProps = new OutboundHttpProperties();
+    outboundProps.setMaxConnectionsTotal(512);
+    outboundProps.setMaxConnectionsPerHost(512);
+    // Stands in for what URL validation remembers; the mocked validation does not.
+    vettedAddresses = new VettedAddresses(outboundProps);
+    vettedAddresses.remember("127.0.0.1", new InetAddress[]{InetAddress.getLoopbackAddress()});
+    OutboundHttpClientFactory factory = new OutboundHttpClientFactory(outboundProps,
+        new OutboundConnectionMetrics(registry), registry, vettedAddresses);
+    client = factory.httpClient(factory.connectionManager());
+    service = new AsyncWebsiteTestService(new AbortOnEarlyCloseRequestFactory(client), vettedAddresses, validation,
+        websiteProps, outboundProps, new ServiceMetrics(registry));
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    service.destroy();
+    client.close();
+    server.stop(0);
+    serverThreads.shutdownNow();
+  }
+
+  @Test
+  void testWebsite_returnsBodyAndForwardsCustomHeader() throws Exception {
+    WebsiteTestRequest req = request("/hello");
+    req.customHeaderKey = "X-Test";
+    req.customHeaderValue = "world";
+
+    byte[] body = service.testWebsite(req, Deadline.unbounded()).get(5, TimeUnit.SECONDS);
+
+    assertEquals("hello world", new String(body, StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void testWebsite_capsTheBody() throws Exception {
+    byte[] body = service.testWebsite(request("/large"), Deadline.unbounded()).get(5, TimeUnit.SECONDS);
+
+    assertEquals(1024, body.length);
+    assertEquals(1024, registry.get("bytes.read").tag("source", "website").counter().count());
+    assertEquals(1024, registry.get("bytes.served").tag("source", "website").counter().count());
+    assertEquals(1, registry.get("website.test.outbound").tags("call", "async", "outcome", "success").timer().count());
+  }
+
+  @Test
+  void testWebsite_reportsErrorStatus() throws Exception {
+    byte[] body = service.testWebsite(request("/missing"), Deadline.unbounded()).get(5, TimeUnit.SECONDS);
+
+    assertEquals("URL returned status code: 404 NOT_FOUND", new String(body, StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void exchanges_recordAnOutboundFetchEvent() throws Exception {
+    Path dump = Files.createTempFile("outbound-fetch", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("samplejavaapp.OutboundFetch");
+      recording.start();
+      service.testWebsite(request("/large"), Deadline.unbounded()).get(5, TimeUnit.SECONDS);
+      service.count(request("/missing")).get(5, TimeUnit.SECONDS);
+      recording.stop();
+      recording.dump(dump);
+
+      List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+      assertEquals(2, events.size());
+      RecordedEvent async = events.stream().filter(e -> e.getString("call").equals("async")).findFirst().orElseThrow();
+      assertEquals("127.0.0.1", async.getString("host"));
+      assertEquals(200, async.getInt("status"));
+      assertEquals(1024, async.getLong("bytesRead"));
+      assertEquals(1024, async.getLong("bytesServed"));
+      assertEquals("success", async.getString("outcome"));
+      RecordedEvent batch = events.stream().filter(e -> e.getString("call").equals("batch")).findFirst().orElseThrow();
+      assertEquals(404, batch.getInt("status"));
+      assertEquals(0, batch.getLong("bytesServed"));
+      assertEquals("success", batch.getString("outcome"));
+    } finally {
+      Files.deleteIfExists(dump);
+    }
+  }
+
+  @Test
+  void testWebsite_validatesBeforeOpeningAConnection() {
+    WebsiteTestRequest req = request("/hello");
+    doThrow(new InvalidURLException(InvalidURLException.Reason.DISALLOWED_IP, "Invalid or disallowed URL"))
+        .when(validation).validateURL(req.url);
+
+    assertThrows(InvalidURLException.class, () -> service.testWebsite(req, Deadline.unbounded()));
+    assertEquals(0, requests.get());
+  }
+
+  @Test
+  void testWebsite_neverResolvesAHostThatWasNotVetted() {
+    WebsiteTestRequest req = new WebsiteTestRequest();
+    req.url = "http://localhost:" + server.getAddress().getPort() + "/hello";
+
+    ExecutionException e = assertThrows(ExecutionException.class,
+        () -> service.testWebsite(req, Deadline.unbounded()).get(5, TimeUnit.SECONDS));
+
+    assertInstanceOf(UnknownHostException.class, e.getCause());
+    assertEquals(0, requests.get());
+  }
+
+  @Test
+  void testWebsite_rejectsRestrictedHeaders() {
+    WebsiteTestRequest req = request("/hello");
+    req.customHeaderKey = "Host";
+    req.customHeaderValue = "internal.example";
+
+    assertThrows(IllegalArgumentException.class, () -> service.testWebsite(req, Deadline.unbounded()));
+    assertEquals(0, requests.get());
+  }
+
+  @Test
+  void testWebsite_rejectsRequestsOnceTheBufferBudgetIsSpent() throws Exception {
+    CompletableFuture<byte[]> trickle = service.testWebsite(request("/trickle"), Deadline.unbounded());
+    Thread.sleep(300);
+
+    ExecutionException e = assertThrows(ExecutionException.class,
+        () -> service.testWebsite(request("/hello"), Deadline.unbounded()).get(5, TimeUnit.SECONDS));
+    assertInstanceOf(TaskRejectedException.class, e.getCause());
+
+    assertEquals(1024, trickle.get(5, TimeUnit.SECONDS).length);
+    assertEquals("hello null", new String(service.testWebsite(request("/hello"), Deadline.unbounded())
+        .get(5, TimeUnit.SECONDS), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void testWebsite_keepsManySlowExchangesInFlightUnderTheDefaultBudget() throws Exception {
+    // Default website.test properties: 1MB bodies out of a 64MB budget. Only bytes actually read are charged.
+    AsyncWebsiteTestService defaults = new AsyncWebsiteTestService(new AbortOnEarlyCloseRequestFactory(client),
+        vettedAddresses, validation, new WebsiteTestProperties(), outboundProps, new ServiceMetrics(registry));
+    try {
+      List<CompletableFuture<byte[]>> tests = new ArrayList<>();
+      for (int i = 0; i < 256; i++) {
+        tests.add(defaults.testWebsite(request("/slow"), Deadline.unbounded()));
+      }
+
+      for (CompletableFuture<byte[]> test : tests) {
+        assertEquals("hello null", new String(test.get(20, TimeUnit.SECONDS), StandardCharsets.UTF_8));
+      }
+      assertTrue(maxActive.get() > 64, "only " + maxActive.get() + " exchanges were in flight at once");
+    } finally {
+      defaults.destroy();
+    }
+  }
+
+  @Test
+  void testWebsite_failsWithTheStageWhenTheDeadlineRunsOut() {
+    long start = System.nanoTime();
+
+    ExecutionException e = assertThrows(ExecutionException.class,
+        () -> service.testWebsite(request("/slow"), Deadline.after(Duration.ofMillis(200))).get(5, TimeUnit.SECONDS));
+
+    DeadlineExceededException cause = assertInstanceOf(DeadlineExceededException.class, e.getCause());
+    assertEquals(DeadlineExceededException.Stage.READ, cause.getStage());
+    assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1500);
+  }
+
+  @Test
+  void testWebsite_failsFastWhenTheBudgetIsAlreadySpent() {
+    Deadline spent = Deadline.after(Duration.ZERO);
+
+    DeadlineExceededException e = assertThrows(DeadlineExceededException.class,
+        () -> service.testWebsite(request("/hello"), spent));
+    assertEquals(DeadlineExceededException.Stage.CONNECT, e.getStage());
+    assertEquals(0, requests.get());
+  }
+
+  private WebsiteTestRequest request(String path) {
+    WebsiteTestRequest req = new WebsiteTestRequest();
+    req.url = "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    return req;
+  }
+}
@@ -0,0 +1,169 @@
+package com.datadoghq.workshops.samplejavaapp.service;
+
+import com.datadoghq.workshops.samplejavaapp.config.OutboundHttpProperties;
+import com.datadoghq.workshops.samplejavaapp.config.WebsiteTestProperties;
+import com.datadoghq.workshops.samplejavaapp.exception.InvalidURLBatchException;
+import com.datadoghq.workshops.samplejavaapp.exception.InvalidURLException;
+import com.datadoghq.workshops.samplejavaapp.http.WebsiteBatchTestRequest;
+import com.datadoghq.workshops.samplejavaapp.http.WebsiteBatchTestResult;
+import com.datadoghq.workshops.samplejavaapp.outbound.AbortOnEarlyCloseRequestFactory;
+import com.datadoghq.workshops.samplejavaapp.outbound.Deadline;
+import com.datadoghq.workshops.samplejavaapp.outbound.OutboundConnectionMetrics;
+import com.datadoghq.workshops.samplejavaapp.outbound.OutboundHttpClientFactory;
+import com.datadoghq.workshops.samplejavaapp.outbound.VettedAddresses;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BatchWebsiteTestServiceTest {
+
+  private HttpServer server;
+  private ExecutorService serverThreads;
+  private final AtomicInteger requests = new AtomicInteger();
+  private final AtomicInteger active = new AtomicInteger();
+  private final AtomicInteger maxActive = new AtomicInteger();
+  private CloseableHttpClient client;
+  private AsyncWebsiteTestService asyncService;
+  private BatchWebsiteTestService service;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/", exchange -> {
+      requests.incrementAndGet();
+      maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+      try {
+        String path = exchange.getRequestURI().getPath();
+        if (path.startsWith("/slow")) {
+          Thread.sleep(300);
+        }
+        byte[] body = (path.equals("/large") ? "x".repeat(64 * 1024) : "hello").getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        active.decrementAndGet();
+        exchange.close();
+      }
+    });
+    serverThreads = Executors.newCachedThreadPool();
+    server.setExecutor(serverThreads);
+    server.start();
+
+    URLValidationService validation = mock(URLValidationService.class);
+    when(validation.validateURLAsync(anyString(), any())).thenAnswer(invocation -> {
+      String url = invocation.getArgument(0);
+      return url.contains("/blocked")
+          ? CompletableFuture.failedFuture(new InvalidURLException(InvalidURLException.Reason.DISALLOWED_IP, "Invalid or disallowed URL"))
+          : CompletableFuture.completedFuture(null);
+    });
+
+    WebsiteTestProperties websiteProps = new WebsiteTestProperties();
+    websiteProps.setMaxBodySize(DataSize.ofBytes(1024));
+    websiteProps.getBatch().setMaxPerHost(2);
+    OutboundHttpProperties outboundProps = new OutboundHttpProperties();
+    // Stands in for what URL validation remembers; the mocked validation does not.
+    VettedAddresses vettedAddresses = new VettedAddresses(outboundProps);
+    vettedAddresses.remember("127.0.0.1", new InetAddress[]{InetAddress.getLoopbackAddress()});
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    OutboundHttpClientFactory factory = new OutboundHttpClientFactory(outboundProps,
+        new OutboundConnectionMetrics(registry), registry, vettedAddresses);
+    client = factory.httpClient(factory.connectionManager());
+    asyncService = new AsyncWebsiteTestService(new AbortOnEarlyCloseRequestFactory(client), vettedAddresses, validation,
+        websiteProps, outboundProps, new ServiceMetrics(registry));
+    service = new BatchWebsiteTestService(asyncService, validation, websiteProps);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    asyncService.destroy();
+    client.close();
+    server.stop(0);
+    serverThreads.shutdownNow();
+  }
+
+  @Test
+  void testWebsites_rejectsTheWholeBatchWithTheIndexesOfEveryInvalidUrl() {
+    WebsiteBatchTestRequest batch = batch("/hello", "/blocked", "/hello", "/blocked");
+
+    InvalidURLBatchException e = assertThrows(InvalidURLBatchException.class,
+        () -> service.testWebsites(batch, Deadline.unbounded(), result -> {}));
+
+    assertEquals(List.of(1, 3), e.getInvalidIndexes());
+    assertEquals(0, requests.get());
+  }
+
+  @Test
+  void testWebsites_deliversResultsInCompletionOrder() throws Exception {
+    List<WebsiteBatchTestResult> results = new CopyOnWriteArrayList<>();
+
+    service.testWebsites(batch("/slow", "/hello"), Deadline.unbounded(), results::add).get(5, TimeUnit.SECONDS);
+
+    assertEquals(List.of(1, 0), results.stream().map(result -> result.index).toList());
+    assertTrue(results.stream().allMatch(result -> result.status == 200 && result.error == null));
+  }
+
+  @Test
+  void testWebsites_countsBodiesUpToTheCap() throws Exception {
+    List<WebsiteBatchTestResult> results = new CopyOnWriteArrayList<>();
+
+    service.testWebsites(batch("/large", "/hello"), Deadline.unbounded(), results::add).get(5, TimeUnit.SECONDS);
+
+    WebsiteBatchTestResult large = results.stream().filter(result -> result.index == 0).findFirst().orElseThrow();
+    WebsiteBatchTestResult small = results.stream().filter(result -> result.index == 1).findFirst().orElseThrow();
+    assertEquals(1024, large.bytes);
+    assertEquals(5, small.bytes);
+  }
+
+  @Test
+  void testWebsites_neverExceedsThePerHostCap() throws Exception {
+    List<WebsiteBatchTestResult> results = new CopyOnWriteArrayList<>();
+
+    service.testWebsites(batch("/slow/1", "/slow/2", "/slow/3", "/slow/4", "/slow/5", "/slow/6"),
+        Deadline.unbounded(), results::add).get(10, TimeUnit.SECONDS);
+
+    assertEquals(6, results.size());
+    assertEquals(6, requests.get());
+    assertEquals(2, maxActive.get());
+  }
+
+  @Test
+  void testWebsites_cancellingTheBatchStopsWaitingFetches() throws Exception {
+    CompletableFuture<Void> done = service.testWebsites(batch("/slow/1", "/slow/2", "/slow/3", "/slow/4"),
+        Deadline.unbounded(), result -> {});
+    Thread.sleep(100);
+
+    done.cancel(true);
+    Thread.sleep(700);
+
+    assertEquals(2, requests.get(), "fetches still waiting for a slot must not start");
+  }
+
+  private WebsiteBatchTestRequest batch(String... paths) {
+    WebsiteBatchTestRequest batch = new WebsiteBatchTestRequest();
+    batch.urls = Arrays.stream(paths)
+        .map(path -> "http://127.0.0.1:" + server.getAddress().getPort() + path)
+        .toList();
+    return batch;
+  }
+}
@@ -68,7 +68,7 @@ class DomainTestServiceSecurityTests {
 
   @Test
   void buildPingProcess_usesArgumentSeparationAndNoShell() {
-    DomainTestService service = new DomainTestService();
+    DomainTestService service = new DomainTestService(ServiceMetrics.noop());
     ProcessBuilder pb = service.buildPingProcess("example.com");
     assertEquals(List.of("ping", "-c", "1", "example.com"), pb.command());
     assertFalse(pb.command().contains("sh"));
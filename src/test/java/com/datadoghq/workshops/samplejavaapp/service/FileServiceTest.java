@@ -0,0 +1,37 @@
+package com.datadoghq.workshops.samplejavaapp.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileServiceTest {
+
+  @Test
+  void readFile_countsTheBytesItServes() throws Exception {
+    Path dir = Files.createDirectories(Path.of(FileService.ALLOWED_PREFIX));
+    Path file = Files.createTempFile(dir, "served", ".txt");
+    try {
+      Files.writeString(file, "héllo € 😀\nbye\n", StandardCharsets.UTF_8);
+      SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+      String content = new FileService(new ServiceMetrics(registry)).readFile(file.toString());
+
+      assertEquals(content.getBytes(StandardCharsets.UTF_8).length,
+          registry.get("bytes.served").tag("source", "file").counter().count());
+      assertEquals(0, registry.get("bytes.served").tag("source", "website").counter().count());
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  void utf8Length_matchesTheEncoder() {
+    String content = "aé€😀\uD83D";
+    assertEquals(content.getBytes(StandardCharsets.UTF_8).length, FileService.utf8Length(content));
+  }
+}
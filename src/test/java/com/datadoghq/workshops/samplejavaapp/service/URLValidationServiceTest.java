@@ -1,11 +1,20 @@
 package com.datadoghq.workshops.samplejavaapp.service;
 
 import com.datadoghq.workshops.samplejavaapp.config.URLValidationProperties;
+import com.datadoghq.workshops.samplejavaapp.exception.DeadlineExceededException;
 import com.datadoghq.workshops.samplejavaapp.exception.InvalidURLException;
+import com.datadoghq.workshops.samplejavaapp.outbound.Deadline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.Test;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -114,13 +123,76 @@ class URLValidationServiceTest {
     assertEquals(InvalidURLException.Reason.DISALLOWED_DOMAIN, ex.getReason());
   }
 
+  @Test
+  void validateURL_reportsDnsAsTheOverrunStageWhenTheDeadlineCutsTheLookupShort() throws Exception {
+    Deadline deadline = Deadline.after(Duration.ofMillis(50));
+    URLValidationService svc = newServiceWithResolver((host) -> {
+      try {
+        Thread.sleep(100);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      throw new UnknownHostException("DNS lookup timed out");
+    });
+
+    try (Deadline.Scope ignored = deadline.activate()) {
+      DeadlineExceededException ex = assertThrows(
+          DeadlineExceededException.class,
+          () -> svc.validateURL("https://example.com")
+      );
+      assertEquals(DeadlineExceededException.Stage.DNS, ex.getStage());
+    }
+  }
+
+  @Test
+  void validateURL_countsRejectionsByReasonAndTimesDnsApartFromPolicy() throws Exception {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    URLValidationService svc = new URLValidationService(props(), (host) -> new InetAddress[]{InetAddress.getByName("10.0.0.1")},
+        null, new ServiceMetrics(registry));
+
+    assertThrows(InvalidURLException.class, () -> svc.validateURL("http://example.com"));
+    assertThrows(InvalidURLException.class, () -> svc.validateURL("http://other.org"));
+
+    assertEquals(1, registry.get("url.validation.rejected").tag("reason", "disallowed_ip").counter().count());
+    assertEquals(1, registry.get("url.validation.rejected").tag("reason", "disallowed_domain").counter().count());
+    assertEquals(0, registry.get("url.validation.rejected").tag("reason", "malformed_url").counter().count());
+    assertEquals(1, registry.get("url.validation.duration").tag("stage", "dns").timer().count());
+    assertEquals(2, registry.get("url.validation.duration").tag("stage", "policy").timer().count());
+  }
+
+  @Test
+  void validateURL_recordsADnsLookupEventPerResolution() throws Exception {
+    URLValidationService svc = newServiceWithResolver((host) -> new InetAddress[]{
+        InetAddress.getByName("93.184.216.34"), InetAddress.getByName("93.184.216.35")});
+    Path dump = Files.createTempFile("dns-lookup", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("samplejavaapp.DnsLookup");
+      recording.start();
+      svc.validateURL("https://Example.com");
+      recording.stop();
+      recording.dump(dump);
+
+      List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+      assertEquals(1, events.size());
+      assertEquals("example.com", events.get(0).getString("host"));
+      assertEquals(2, events.get(0).getInt("addresses"));
+      assertEquals("resolved", events.get(0).getString("outcome"));
+    } finally {
+      Files.deleteIfExists(dump);
+    }
+  }
+
   private static URLValidationService newServiceWithResolver(URLValidationService.HostResolver resolver) {
+    return new URLValidationService(props(), resolver);
+  }
+
+  private static URLValidationProperties props() {
     URLValidationProperties props = new URLValidationProperties();
     props.getWhitelist().setDomains(List.of("example.com"));
     props.getBlacklist().setIpRanges(List.of("127.0.0.0/8", "10.0.0.0/8", "172.16.0.0/12", "192.168.0.0/16"));
     props.getBlacklist().setHosts(List.of("169.254.169.254", "metadata.google.internal"));
     props.setAllowedPorts(List.of(80, 443));
-    return new URLValidationService(props, resolver);
+    return props;
   }
 }
 
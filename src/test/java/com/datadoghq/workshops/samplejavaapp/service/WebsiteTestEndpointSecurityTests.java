@@ -1,9 +1,9 @@
 package com.datadoghq.workshops.samplejavaapp.service;
 
 import com.datadoghq.workshops.samplejavaapp.config.URLValidationProperties;
+import com.datadoghq.workshops.samplejavaapp.http.WebsiteProbeResponse;
 import com.datadoghq.workshops.samplejavaapp.http.WebsiteTestRequest;
 import org.junit.jupiter.api.Test;
-import org.mockito.ArgumentMatchers;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.TestConfiguration;
@@ -12,12 +12,21 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Primary;
 import org.springframework.http.*;
+import org.springframework.mock.http.client.MockClientHttpResponse;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.InetAddress;
+import java.net.Socket;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -27,7 +36,9 @@ import static org.mockito.Mockito.*;
     "url.validation.whitelist.domains=example.com",
     "url.validation.blacklist.ip-ranges=127.0.0.0/8,10.0.0.0/8,172.16.0.0/12,192.168.0.0/16",
     "url.validation.blacklist.hosts=169.254.169.254,metadata.google.internal",
-    "url.validation.allowed-ports=80,443"
+    "url.validation.allowed-ports=80,443",
+    "website.test.max-body-size=8B",
+    "outbound.http.snapshot.enabled=false"
 })
 @Import(WebsiteTestEndpointSecurityTests.TestConfig.class)
 class WebsiteTestEndpointSecurityTests {
@@ -35,6 +46,9 @@ class WebsiteTestEndpointSecurityTests {
   @Autowired
   private TestRestTemplate client;
 
+  @LocalServerPort
+  private int port;
+
   @MockBean
   private RestTemplate restTemplate;
 
@@ -46,7 +60,7 @@ class WebsiteTestEndpointSecurityTests {
     ResponseEntity<String> resp = client.postForEntity("/test-website", req, String.class);
 
     assertEquals(HttpStatus.BAD_REQUEST, resp.getStatusCode());
-    verify(restTemplate, never()).exchange(anyString(), any(), any(), ArgumentMatchers.<Class<String>>any());
+    verify(restTemplate, never()).execute(anyString(), any(HttpMethod.class), any(RequestCallback.class), any(ResponseExtractor.class));
   }
 
   @Test
@@ -57,17 +71,12 @@ class WebsiteTestEndpointSecurityTests {
     ResponseEntity<String> resp = client.postForEntity("/test-website", req, String.class);
 
     assertEquals(HttpStatus.BAD_REQUEST, resp.getStatusCode());
-    verify(restTemplate, never()).exchange(anyString(), any(), any(), ArgumentMatchers.<Class<String>>any());
+    verify(restTemplate, never()).execute(anyString(), any(HttpMethod.class), any(RequestCallback.class), any(ResponseExtractor.class));
   }
 
   @Test
   void testWebsite_allowsWhitelistedExternalUrl_andCallsRestTemplate() {
-    when(restTemplate.exchange(
-        eq("http://example.com"),
-        eq(HttpMethod.GET),
-        any(HttpEntity.class),
-        eq(String.class))
-    ).thenReturn(new ResponseEntity<>("ok", HttpStatus.OK));
+    stubUpstream(HttpMethod.GET, "ok", HttpStatus.OK);
 
     WebsiteTestRequest req = new WebsiteTestRequest();
     req.url = "http://example.com";
@@ -76,7 +85,146 @@ class WebsiteTestEndpointSecurityTests {
 
     assertEquals(HttpStatus.OK, resp.getStatusCode());
     assertEquals("ok", resp.getBody());
-    verify(restTemplate, times(1)).exchange(eq("http://example.com"), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class));
+    verify(restTemplate, times(1)).execute(eq("http://example.com"), eq(HttpMethod.GET), any(RequestCallback.class), any(ResponseExtractor.class));
+  }
+
+  @Test
+  void testWebsite_truncatesBodiesAtTheConfiguredCap() {
+    stubUpstream(HttpMethod.GET, "0123456789abcdef", HttpStatus.OK);
+
+    WebsiteTestRequest req = new WebsiteTestRequest();
+    req.url = "http://example.com";
+
+    ResponseEntity<String> resp = client.postForEntity("/test-website", req, String.class);
+
+    assertEquals(HttpStatus.OK, resp.getStatusCode());
+    assertEquals("01234567", resp.getBody());
+  }
+
+  @Test
+  void testWebsite_signalsTruncationInATrailer() throws Exception {
+    stubUpstream(HttpMethod.GET, "0123456789abcdef", HttpStatus.OK);
+
+    String raw = postRaw("/test-website", "{\"url\":\"http://example.com\"}");
+
+    assertTrue(raw.startsWith("HTTP/1.1 200"), raw);
+    assertTrue(raw.contains("Trailer: X-Body-Truncated"), raw);
+    assertTrue(raw.contains("X-Body-Truncated: true"), raw);
+  }
+
+  @Test
+  void testWebsite_bodyOfExactlyTheCapIsNotTruncated() throws Exception {
+    stubUpstream(HttpMethod.GET, "01234567", HttpStatus.OK);
+
+    String raw = postRaw("/test-website", "{\"url\":\"http://example.com\"}");
+
+    assertTrue(raw.contains("01234567"), raw);
+    assertFalse(raw.contains("X-Body-Truncated: true"), raw);
+  }
+
+  @Test
+  void testWebsite_unexpectedFailureWhileStreamingIsAnInternalError() {
+    when(restTemplate.execute(eq("http://example.com"), eq(HttpMethod.GET), any(RequestCallback.class), any(ResponseExtractor.class)))
+        .thenThrow(new IllegalStateException("boom"));
+
+    WebsiteTestRequest req = new WebsiteTestRequest();
+    req.url = "http://example.com";
+
+    ResponseEntity<String> resp = client.postForEntity("/test-website", req, String.class);
+
+    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, resp.getStatusCode());
+    assertEquals("Internal server error", resp.getBody());
+  }
+
+  @Test
+  void testWebsite_reportsUpstreamErrorStatus() {
+    stubUpstream(HttpMethod.GET, "not found", HttpStatus.NOT_FOUND);
+
+    WebsiteTestRequest req = new WebsiteTestRequest();
+    req.url = "http://example.com";
+
+    ResponseEntity<String> resp = client.postForEntity("/test-website", req, String.class);
+
+    assertEquals(HttpStatus.OK, resp.getStatusCode());
+    assertEquals("URL returned status code: 404 NOT_FOUND", resp.getBody());
+  }
+
+  @Test
+  void probeWebsite_headOnlyReportsStatusWithoutBody() {
+    stubUpstream(HttpMethod.HEAD, "", HttpStatus.NO_CONTENT);
+
+    WebsiteTestRequest req = new WebsiteTestRequest();
+    req.url = "http://example.com";
+    req.headOnly = true;
+
+    ResponseEntity<WebsiteProbeResponse> resp = client.postForEntity("/probe-website", req, WebsiteProbeResponse.class);
+
+    assertEquals(HttpStatus.OK, resp.getStatusCode());
+    assertEquals(204, resp.getBody().status);
+    assertNull(resp.getBody().body);
+  }
+
+  @Test
+  void probeWebsite_returnsOnlyTheRequestedPrefix() {
+    stubUpstream(HttpMethod.GET, "hello world", HttpStatus.OK);
+
+    WebsiteTestRequest req = new WebsiteTestRequest();
+    req.url = "http://example.com";
+    req.probeBytes = 5;
+
+    ResponseEntity<WebsiteProbeResponse> resp = client.postForEntity("/probe-website", req, WebsiteProbeResponse.class);
+
+    assertEquals(HttpStatus.OK, resp.getStatusCode());
+    assertEquals("hello", resp.getBody().body);
+    assertTrue(resp.getBody().truncated);
+  }
+
+  @Test
+  void probeWebsite_reportsPhaseTimingsOnlyWhenAsked() {
+    stubUpstream(HttpMethod.GET, "hello world", HttpStatus.OK);
+
+    WebsiteTestRequest req = new WebsiteTestRequest();
+    req.url = "http://example.com";
+
+    ResponseEntity<WebsiteProbeResponse> plain = client.postForEntity("/probe-website", req, WebsiteProbeResponse.class);
+    assertNull(plain.getBody().timings);
+
+    req.timings = true;
+    ResponseEntity<WebsiteProbeResponse> timed = client.postForEntity("/probe-website", req, WebsiteProbeResponse.class);
+
+    assertEquals(HttpStatus.OK, timed.getStatusCode());
+    assertTrue(timed.getBody().timings.keySet().containsAll(List.of("dns", "ttfb", "download")));
+    // The upstream is mocked, so no connection is opened.
+    assertFalse(timed.getBody().timings.containsKey("connect"));
+  }
+
+  /**
+   * Plain HTTP/1.1 exchange, so the chunked body and its trailers can be inspected as sent.
+   */
+  private String postRaw(String path, String json) throws IOException {
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+      socket.setSoTimeout(5000);
+      byte[] body = json.getBytes(StandardCharsets.UTF_8);
+      String head = "POST " + path + " HTTP/1.1\r\n"
+          + "Host: localhost\r\n"
+          + "TE: trailers\r\n"
+          + "Connection: close\r\n"
+          + "Content-Type: application/json\r\n"
+          + "Content-Length: " + body.length + "\r\n\r\n";
+      OutputStream out = socket.getOutputStream();
+      out.write(head.getBytes(StandardCharsets.US_ASCII));
+      out.write(body);
+      out.flush();
+      return new String(socket.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  private void stubUpstream(HttpMethod method, String body, HttpStatus status) {
+    when(restTemplate.execute(eq("http://example.com"), eq(method), any(RequestCallback.class), any(ResponseExtractor.class)))
+        .thenAnswer(invocation -> {
+          ResponseExtractor<?> extractor = invocation.getArgument(3);
+          return extractor.extractData(new MockClientHttpResponse(body.getBytes(StandardCharsets.UTF_8), status));
+        });
   }
 
   @TestConfiguration
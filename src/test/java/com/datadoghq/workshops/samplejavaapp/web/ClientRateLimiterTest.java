@@ -0,0 +1,60 @@
+package com.datadoghq.workshops.samplejavaapp.web;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientRateLimiterTest {
+
+  private final AtomicLong now = new AtomicLong();
+
+  @Test
+  void allowsTheBurstThenRefillsAtTheConfiguredRate() {
+    ClientRateLimiter limiter = new ClientRateLimiter(2, 3, 100, now::get);
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals(0, limiter.tryAcquire("10.0.0.1"), "burst request " + i);
+    }
+    long wait = limiter.tryAcquire("10.0.0.1");
+    assertEquals(Duration.ofMillis(500).toNanos(), wait);
+
+    now.addAndGet(wait);
+    assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+    assertTrue(limiter.tryAcquire("10.0.0.1") > 0);
+  }
+
+  @Test
+  void clientsHaveSeparateBuckets() {
+    ClientRateLimiter limiter = new ClientRateLimiter(1, 1, 100, now::get);
+
+    assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+    assertTrue(limiter.tryAcquire("10.0.0.1") > 0);
+    assertEquals(0, limiter.tryAcquire("10.0.0.2"));
+  }
+
+  @Test
+  void idleTimeDoesNotBuildUpMoreThanTheBurst() {
+    ClientRateLimiter limiter = new ClientRateLimiter(1, 2, 100, now::get);
+    limiter.tryAcquire("10.0.0.1");
+
+    now.addAndGet(Duration.ofHours(1).toNanos());
+
+    assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+    assertEquals(0, limiter.tryAcquire("10.0.0.1"));
+    assertTrue(limiter.tryAcquire("10.0.0.1") > 0);
+  }
+
+  @Test
+  void tracksAtMostMaxClients() {
+    ClientRateLimiter limiter = new ClientRateLimiter(1, 1, 64, now::get);
+
+    for (int i = 0; i < 10_000; i++) {
+      limiter.tryAcquire("client-" + i);
+    }
+
+    assertTrue(limiter.size() <= 64, "tracked " + limiter.size());
+  }
+}
@@ -0,0 +1,64 @@
+package com.datadoghq.workshops.samplejavaapp.web;
+
+import com.datadoghq.workshops.samplejavaapp.config.ConcurrencyLimitProperties;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitFilterTest {
+
+  private final AtomicLong now = new AtomicLong();
+
+  @Test
+  void holdsTheSlotOfAnAsyncRequestUntilItsResponseIsComplete() throws Exception {
+    ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(props(1), now::get);
+    FilterChain startsAsync = (req, res) -> req.startAsync();
+
+    MockHttpServletRequest first = request("/test-website");
+    filter.doFilter(first, new MockHttpServletResponse(), startsAsync);
+
+    MockHttpServletResponse shed = new MockHttpServletResponse();
+    filter.doFilter(request("/test-website"), shed, startsAsync);
+    assertEquals(503, shed.getStatus());
+    assertEquals("1", shed.getHeader("Retry-After"));
+
+    ((MockAsyncContext) first.getAsyncContext()).complete();
+
+    MockHttpServletResponse admitted = new MockHttpServletResponse();
+    filter.doFilter(request("/test-website"), admitted, (req, res) -> { });
+    assertEquals(200, admitted.getStatus());
+  }
+
+  @Test
+  void leavesOtherEndpointsAlone() throws Exception {
+    ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(props(1), now::get);
+
+    for (int i = 0; i < 3; i++) {
+      MockHttpServletResponse response = new MockHttpServletResponse();
+      filter.doFilter(request("/view-file"), response, (req, res) -> req.startAsync());
+      assertEquals(200, response.getStatus());
+    }
+  }
+
+  private static ConcurrencyLimitProperties props(int limit) {
+    ConcurrencyLimitProperties props = new ConcurrencyLimitProperties();
+    props.setEndpoints(List.of("test-website"));
+    props.setInitialLimit(limit);
+    props.setMinLimit(1);
+    return props;
+  }
+
+  private static MockHttpServletRequest request(String path) {
+    MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+    request.setServletPath(path);
+    request.setAsyncSupported(true);
+    return request;
+  }
+}
@@ -0,0 +1,31 @@
+package com.datadoghq.workshops.samplejavaapp.web;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FirstRequestTimerTest {
+
+  @Test
+  void recordsOnlyTheFirstRequestRelativeToJvmStart() throws Exception {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    AtomicLong now = new AtomicLong(10_000);
+    FirstRequestTimer timer = new FirstRequestTimer(registry, 8_500, now::get);
+
+    assertTrue(Double.isNaN(registry.get("application.first.request.time").timeGauge().value(TimeUnit.MILLISECONDS)));
+
+    timer.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), new MockHttpServletResponse(),
+        (req, res) -> now.addAndGet(250));
+    now.addAndGet(5_000);
+    timer.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), new MockHttpServletResponse(),
+        (req, res) -> { });
+
+    assertEquals(1750.0, registry.get("application.first.request.time").timeGauge().value(TimeUnit.MILLISECONDS));
+  }
+}
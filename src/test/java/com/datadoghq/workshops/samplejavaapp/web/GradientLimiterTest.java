@@ -0,0 +1,71 @@
+package com.datadoghq.workshops.samplejavaapp.web;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GradientLimiterTest {
+
+  @Test
+  void refusesRequestsBeyondTheLimitWithoutQueueing() {
+    GradientLimiter limiter = new GradientLimiter(4, 1, 100, 1.5, 0.2);
+
+    for (int i = 0; i < 4; i++) {
+      assertTrue(limiter.tryAcquire());
+    }
+    assertFalse(limiter.tryAcquire());
+
+    limiter.release(Duration.ofMillis(10).toNanos());
+    assertTrue(limiter.tryAcquire());
+  }
+
+  @Test
+  void growsWhileLatencyHoldsSteadyUnderLoad() {
+    GradientLimiter limiter = new GradientLimiter(10, 1, 100, 1.5, 0.2);
+
+    saturate(limiter, Duration.ofMillis(10), 50);
+
+    assertTrue(limiter.limit() > 20, "limit " + limiter.limit());
+  }
+
+  @Test
+  void shrinksWhenLatencyClimbs() {
+    GradientLimiter limiter = new GradientLimiter(10, 1, 100, 1.5, 0.2);
+    saturate(limiter, Duration.ofMillis(10), 200);
+    int before = limiter.limit();
+
+    saturate(limiter, Duration.ofMillis(500), 30);
+
+    assertTrue(limiter.limit() < before / 2, "limit " + before + " -> " + limiter.limit());
+    assertTrue(limiter.limit() >= 1);
+  }
+
+  @Test
+  void doesNotGrowWithoutDemand() {
+    GradientLimiter limiter = new GradientLimiter(20, 1, 100, 1.5, 0.2);
+
+    for (int i = 0; i < 100; i++) {
+      assertTrue(limiter.tryAcquire());
+      limiter.release(Duration.ofMillis(10).toNanos());
+    }
+
+    assertEquals(20, limiter.limit());
+  }
+
+  /**
+   * Fills every slot, then completes the requests one by one with the given latency.
+   */
+  private static void saturate(GradientLimiter limiter, Duration rtt, int rounds) {
+    for (int round = 0; round < rounds; round++) {
+      int admitted = 0;
+      while (limiter.tryAcquire()) {
+        admitted++;
+      }
+      for (int i = 0; i < admitted; i++) {
+        limiter.release(rtt.toNanos());
+      }
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package com.datadoghq.workshops.samplejavaapp.web;
+
+import com.datadoghq.workshops.samplejavaapp.config.RateLimitProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitFilterTest {
+
+  private final AtomicLong now = new AtomicLong();
+
+  @Test
+  void rejectsOverLimitRequestsWithRetryAfterBeforeTheHandlerRuns() throws Exception {
+    RateLimitFilter filter = new RateLimitFilter(props(0.5, 1), now::get);
+
+    MockHttpServletResponse first = call(filter, "/test-domain", "203.0.113.7");
+    MockHttpServletResponse second = call(filter, "/test-domain", "203.0.113.7");
+
+    assertEquals(200, first.getStatus());
+    assertEquals(429, second.getStatus());
+    assertEquals("2", second.getHeader("Retry-After"));
+  }
+
+  @Test
+  void leavesEndpointsWithoutALimitAlone() throws Exception {
+    RateLimitFilter filter = new RateLimitFilter(props(0.5, 1), now::get);
+
+    for (int i = 0; i < 5; i++) {
+      assertEquals(200, call(filter, "/view-file", "203.0.113.7").getStatus());
+    }
+  }
+
+  @Test
+  void disabledFilterLetsEverythingThrough() throws Exception {
+    RateLimitProperties props = props(0.5, 1);
+    props.setEnabled(false);
+    RateLimitFilter filter = new RateLimitFilter(props, now::get);
+
+    for (int i = 0; i < 5; i++) {
+      assertEquals(200, call(filter, "/test-domain", "203.0.113.7").getStatus());
+    }
+  }
+
+  private static RateLimitProperties props(double permitsPerSecond, int burst) {
+    RateLimitProperties.Limit limit = new RateLimitProperties.Limit();
+    limit.setPermitsPerSecond(permitsPerSecond);
+    limit.setBurst(burst);
+    RateLimitProperties props = new RateLimitProperties();
+    props.getEndpoints().put("test-domain", limit);
+    return props;
+  }
+
+  private static MockHttpServletResponse call(RateLimitFilter filter, String path, String client) throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+    request.setServletPath(path);
+    request.setRemoteAddr(client);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    MockFilterChain chain = new MockFilterChain();
+    filter.doFilter(request, response, chain);
+    assertEquals(response.getStatus() == 200, chain.getRequest() != null, "handler runs only when admitted");
+    return response;
+  }
+}
@@ -0,0 +1,41 @@
+package com.datadoghq.workshops.samplejavaapp.web;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Requests come from loopback, one of the trusted proxies, so X-Forwarded-For names the client.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "outbound.http.snapshot.enabled=false",
+    "rate-limit.endpoints[actuator/health].permits-per-second=0.001",
+    "rate-limit.endpoints[actuator/health].burst=1"
+})
+class RateLimitForwardedClientTest {
+
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  @LocalServerPort
+  private int port;
+
+  @Test
+  void clientsBehindTheSameProxyHaveTheirOwnBuckets() throws Exception {
+    assertNotEquals(429, health("203.0.113.1"));
+    assertEquals(429, health("203.0.113.1"));
+
+    assertNotEquals(429, health("203.0.113.2"), "another client behind the proxy is not throttled");
+  }
+
+  private int health(String forwardedFor) throws Exception {
+    HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/actuator/health"))
+        .header("X-Forwarded-For", forwardedFor)
+        .build();
+    return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+  }
+}
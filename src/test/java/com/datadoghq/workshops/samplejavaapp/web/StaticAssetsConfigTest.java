@@ -0,0 +1,76 @@
+package com.datadoghq.workshops.samplejavaapp.web;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The pages and scripts served here are the output of the buildAssets task, not the sources in src/main/ui.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "outbound.http.snapshot.enabled=false")
+class StaticAssetsConfigTest {
+
+  private static final Pattern BUNDLE = Pattern.compile("<script src=\"(/js/main\\.[0-9a-f]{10}\\.js)\"></script>");
+
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  @LocalServerPort
+  private int port;
+
+  @Test
+  void pageLoadsOneHashedBundleAndIsRevalidated() throws Exception {
+    HttpResponse<String> page = get("/", "identity", HttpResponse.BodyHandlers.ofString());
+
+    assertEquals(200, page.statusCode());
+    assertEquals("no-cache", page.headers().firstValue("Cache-Control").orElse(null));
+    assertTrue(BUNDLE.matcher(page.body()).find(), page.body());
+    assertFalse(page.body().contains("/js/common.js"));
+  }
+
+  @Test
+  void hashedBundleIsImmutableAndServedPrecompressed() throws Exception {
+    Matcher bundle = BUNDLE.matcher(get("/", "identity", HttpResponse.BodyHandlers.ofString()).body());
+    assertTrue(bundle.find());
+
+    HttpResponse<byte[]> gzipped = get(bundle.group(1), "gzip", HttpResponse.BodyHandlers.ofByteArray());
+
+    assertEquals(200, gzipped.statusCode());
+    assertEquals("max-age=31536000, public, immutable", gzipped.headers().firstValue("Cache-Control").orElse(null));
+    assertEquals("gzip", gzipped.headers().firstValue("Content-Encoding").orElse(null));
+    assertTrue(gzipped.headers().allValues("Vary").contains("Accept-Encoding"));
+    String script = gunzip(gzipped.body());
+    assertTrue(script.contains("function handleError"), "shared code is bundled");
+    assertTrue(script.contains("url: '/test-domain'"), "page code is bundled");
+  }
+
+  @Test
+  void unhashedScriptsAreNotShipped() throws Exception {
+    assertEquals(404, get("/js/main.js", "identity", HttpResponse.BodyHandlers.ofString()).statusCode());
+  }
+
+  private <T> HttpResponse<T> get(String path, String acceptEncoding, HttpResponse.BodyHandler<T> body)
+      throws IOException, InterruptedException {
+    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+        .header("Accept-Encoding", acceptEncoding)
+        .build();
+    return client.send(request, body);
+  }
+
+  private static String gunzip(byte[] body) throws IOException {
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}